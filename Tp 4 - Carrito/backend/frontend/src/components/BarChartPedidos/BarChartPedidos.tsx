@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from "react";
+import React, { useState, useEffect, useRef } from "react";
 import {
   BarChart,
   Bar,
@@ -10,16 +10,41 @@ import {
   ResponsiveContainer,
 } from "recharts";
 import Contenedor from "../Contenedor/Contenedor"; // Asegúrate de que esta ruta sea correcta
+import { Granularidad, PedidoCreadoDelta, SerieGrafico } from "../../types/types";
+import { suscribirPedidosCreados } from "../../services/eventosPedidos";
 
 interface RechartsBarData {
-  monthYear: string;
+  periodo: string;
   count: number;
 }
 
-const BarChartPedidos: React.FC = () => {
+interface BarChartPedidosProps {
+  desde?: string; // yyyy-MM-dd (vacío = sin límite)
+  hasta?: string;
+}
+
+const TITULOS: Record<Granularidad, string> = {
+  day: "Cantidad de Pedidos por Día",
+  week: "Cantidad de Pedidos por Semana",
+  month: "Cantidad de Pedidos por Mes y Año",
+};
+
+// Período del gráfico al que corresponde un pedido nuevo (las semanas se identifican por su lunes)
+const periodoDe = (delta: PedidoCreadoDelta, granularidad: Granularidad) => {
+  if (granularidad === "month") return delta.mes;
+  if (granularidad === "day") return delta.dia;
+  const lunes = new Date(`${delta.dia}T00:00:00Z`);
+  lunes.setUTCDate(lunes.getUTCDate() - ((lunes.getUTCDay() + 6) % 7));
+  return lunes.toISOString().slice(0, 10);
+};
+
+const BarChartPedidos: React.FC<BarChartPedidosProps> = ({ desde, hasta }) => {
   const [barChartData, setBarChartData] = useState<RechartsBarData[] | null>(
     null
   );
+  const [granularidad, setGranularidad] = useState<Granularidad>("month");
+  const [recargas, setRecargas] = useState(0);
+  const datosRef = useRef<RechartsBarData[] | null>(null);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
 
@@ -29,27 +54,34 @@ const BarChartPedidos: React.FC = () => {
         setLoading(true);
         setError(null);
 
-        const barChartResponse = await fetch(
-          "http://localhost:8080/api/pedidos/chart/pedidos-by-month",
-          {
-            credentials: "include",
-          }
+        const url = new URL(
+          "http://localhost:8080/api/pedidos/chart/pedidos-by-period"
         );
+        url.searchParams.append("granularity", granularidad);
+        if (desde) url.searchParams.append("from", desde);
+        if (hasta) url.searchParams.append("to", hasta);
+
+        const barChartResponse = await fetch(url.toString(), {
+          credentials: "include",
+        });
         if (!barChartResponse.ok) {
+          const cuerpo = await barChartResponse.json().catch(() => null);
           throw new Error(
-            `Error al obtener datos del gráfico de barras: ${barChartResponse.statusText}`
+            cuerpo?.error ??
+              `Error al obtener datos del gráfico de barras: ${barChartResponse.statusText}`
           );
         }
-        const barChartRawData: [string, number][] =
-          await barChartResponse.json();
+        // Respuesta columnar: etiquetas[i] es el período de valores[i]
+        const serie: SerieGrafico = await barChartResponse.json();
 
-        const formattedRechartsBarData: RechartsBarData[] = barChartRawData.map(
-          ([monthYear, count]) => ({
-            monthYear: String(monthYear),
-            count: Number(count),
+        const formattedRechartsBarData: RechartsBarData[] = serie.etiquetas.map(
+          (periodo, i) => ({
+            periodo,
+            count: serie.valores[i],
           })
         );
 
+        datosRef.current = formattedRechartsBarData;
         setBarChartData(formattedRechartsBarData);
       } catch (err) {
         console.error("Error al cargar datos del gráfico de barras:", err);
@@ -64,24 +96,60 @@ const BarChartPedidos: React.FC = () => {
     };
 
     fetchBarChartData();
-  }, []);
+  }, [desde, hasta, granularidad, recargas]);
+
+  // Pedidos nuevos en vivo: se suman a su período sin volver a consultar el gráfico.
+  // Si el período todavía no está en el eje, o se cortó la conexión, se vuelve a leer la serie.
+  useEffect(() => {
+    return suscribirPedidosCreados(
+      (delta) => {
+        if ((desde && delta.dia < desde) || (hasta && delta.dia > hasta)) return;
+        const datos = datosRef.current;
+        if (!datos) return;
+        const periodo = periodoDe(delta, granularidad);
+        if (!datos.some((d) => d.periodo === periodo)) {
+          setRecargas((r) => r + 1);
+          return;
+        }
+        const actualizados = datos.map((d) =>
+          d.periodo !== periodo ? d : { ...d, count: d.count + 1 }
+        );
+        datosRef.current = actualizados;
+        setBarChartData(actualizados);
+      },
+      () => setRecargas((r) => r + 1)
+    );
+  }, [desde, hasta, granularidad]);
 
-  if (loading) return <div>Cargando gráfico de barras...</div>;
-  if (error) return <div className="error-message">{error}</div>;
-  if (!barChartData) return null; // Esto no debería ocurrir si loading y error se manejan
+  // El selector queda visible aunque falle la carga, para poder pasar a una granularidad mayor
+  const selectorGranularidad = (
+    <select
+      value={granularidad}
+      onChange={(e) => setGranularidad(e.target.value as Granularidad)}
+    >
+      <option value="day">Por día</option>
+      <option value="week">Por semana</option>
+      <option value="month">Por mes</option>
+    </select>
+  );
 
   return (
     <Contenedor>
-      {barChartData.length > 0 ? (
+      {selectorGranularidad}
+      {loading ? (
+        <div>Cargando gráfico de barras...</div>
+      ) : error ? (
+        <div className="error-message">{error}</div>
+      ) : barChartData && barChartData.length > 0 ? (
         <div className="chart-container bar-chart-container">
-          <h3>Cantidad de Pedidos por Mes y Año</h3>
+          <h3>{TITULOS[granularidad]}</h3>
           <ResponsiveContainer width="100%" height={400}>
             <BarChart
               data={barChartData}
               margin={{ top: 20, right: 30, left: 20, bottom: 5 }}
             >
               <CartesianGrid strokeDasharray="3 3" />
-              <XAxis dataKey="monthYear" />
+              <XAxis dataKey="periodo" />
               <YAxis />
               <Tooltip />
               <Legend />
@@ -91,7 +159,7 @@ const BarChartPedidos: React.FC = () => {
         </div>
       ) : (
         <p className="no-data-message">
-          No hay datos suficientes para el gráfico de pedidos por mes y año.
+          No hay datos suficientes para el gráfico de pedidos en el período elegido.
         </p>
       )}
     </Contenedor>
@@ -3,9 +3,9 @@ import { FontAwesomeIcon } from '@fortawesome/react-fontawesome'
 import { faMinus, faPlus, faTrashCan } from '@fortawesome/free-solid-svg-icons'
 import './CarritoAside.sass'
 import Titulo from '../Titulo/Titulo'
-import { useState } from 'react'
-import { CarritoAsideProps, PedidoRequest } from '../../types/types'
-import { createPedido } from '../../services/api'; // Importa la nueva función
+import { useEffect, useState } from 'react'
+import { CarritoAsideProps, Cotizacion, PedidoRequest } from '../../types/types'
+import { cotizarCarrito, createPedido } from '../../services/api'; // Importa la nueva función
 
 
 //Declaracion MercadoPago 
@@ -19,6 +19,25 @@ export const CarritoAside: React.FC<CarritoAsideProps> = ({ visible, onClose })
   const { carrito, limpiarCarrito, modificarCantidad, eliminarItem } = useCart()
   const [mensaje, setMensaje] = useState<string | null>(null); //Estado para mensajes
   const [isLoading, setIsLoading] = useState(false);
+  const [cotizacion, setCotizacion] = useState<Cotizacion | null>(null);
+
+  // Cotización del servidor (precios vigentes + envío); se pide un instante después del último cambio
+  useEffect(() => {
+    if (!visible || carrito.length === 0) {
+      setCotizacion(null);
+      return;
+    }
+    let vigente = true;
+    const timer = setTimeout(() => {
+      cotizarCarrito(carrito.map(item => ({ instrumentoId: item.id, cantidad: item.cantidad })))
+        .then(data => { if (vigente) setCotizacion(data); })
+        .catch(() => { if (vigente) setCotizacion(null); }); // Se muestra el total local
+    }, 250);
+    return () => {
+      vigente = false;
+      clearTimeout(timer);
+    };
+  }, [carrito, visible]);
 
   const MERCADOPAGO_PUBLIC_KEY = "APP_USR-9a1a1cb2-bc56-4419-a061-7e7c20ba1127"; // Reemplaza con clave de publicación de MercadoPago
 
@@ -202,8 +221,13 @@ export const CarritoAside: React.FC<CarritoAsideProps> = ({ visible, onClose })
         )}
 
         <div className='botones-carrito'>
+          {cotizacion && (
+            <p style={{ margin: '8px', textAlign: 'center' }}>
+              Envío: {cotizacion.envio === 0 ? 'Gratis' : `$${cotizacion.envio.toFixed(2)}`}
+            </p>
+          )}
           <p style={{ margin: '8px', textAlign: 'center', fontSize: '1.2em', fontWeight: '600' }}>
-            Total: ${total.toFixed(2)}
+            Total: ${(cotizacion ? cotizacion.total : total).toFixed(2)}
           </p>
           <button
             className='vaciar-carrito'
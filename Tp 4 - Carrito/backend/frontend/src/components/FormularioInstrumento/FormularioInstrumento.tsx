@@ -26,11 +26,14 @@ const FormularioInstrumento: React.FC = () => {
     precio: 0,
     costoEnvio: '',
     cantidadVendida: 0,
+    stock: null,
     descripcion: '',
     categoria: { id: 0, denominacion: '' }
   });
 
   const [categorias, setCategorias] = useState<Categoria[]>([]);
+  // Stock y cantidad vendida tal como se leyeron: el servidor aplica solo lo que cambió el administrador
+  const [cargado, setCargado] = useState<{ stock: number | null; cantidadVendida: number }>({ stock: null, cantidadVendida: 0 });
 
   // Cargar categorías
   useEffect(() => {
@@ -55,6 +58,7 @@ const FormularioInstrumento: React.FC = () => {
             ...data,
             id: Number(id) // Fuerza el ID desde la URL
           });
+          setCargado({ stock: data.stock ?? null, cantidadVendida: data.cantidadVendida });
         } catch (error) {
           console.error('Error al cargar instrumento:', error);
           navigate('/grilla');
@@ -78,6 +82,9 @@ const FormularioInstrumento: React.FC = () => {
           denominacion: categorias.find(c => c.id === Number(value))?.denominacion || ''
         }
       });
+    } else if (name === 'stock') {
+      // Vacío = el instrumento no lleva control de stock
+      setFormData({ ...formData, stock: value === '' ? null : Number(value) });
     } else {
       setFormData({
         ...formData,
@@ -109,7 +116,7 @@ const FormularioInstrumento: React.FC = () => {
 
     try {
       if (isEditMode) {
-        await updateInstrumento(formData.id, formData);
+        await updateInstrumento(formData.id, formData, cargado);
       } else {
         const { id, ...datosSinId } = formData;
         await createInstrumento(datosSinId);
@@ -239,6 +246,19 @@ const FormularioInstrumento: React.FC = () => {
           />
         </div>
 
+        <div>
+          <label htmlFor="stock">Stock</label>
+          <input
+            id="stock"
+            type="number"
+            name="stock"
+            min={0}
+            value={formData.stock ?? ''}
+            onChange={handleChange}
+            placeholder="Vacío = sin control de stock"
+          />
+        </div>
+
         <div>
           <label htmlFor="descripcion">Descripción</label>
           <textarea
@@ -3,7 +3,8 @@ import { PedidoResponse } from "../../types/types";
 import Titulo from "../Titulo/Titulo";
 import "./GrillaPedidos.sass";
 import Contenedor from "../Contenedor/Contenedor";
-import { fetchPedidos } from "../../services/api";
+import { fetchPaginaPedidos } from "../../services/api";
+import { suscribirPedidosCreados } from "../../services/eventosPedidos";
 
 // Importa los nuevos componentes de gráficos
 import BarChartPedidos from "../BarChartPedidos/BarChartPedidos";
@@ -13,6 +14,8 @@ const GrillaPedidos = () => {
   const [pedidos, setPedidos] = useState<PedidoResponse[]>([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
+  const [siguienteCursor, setSiguienteCursor] = useState<string | null>(null);
+  const [cargandoMas, setCargandoMas] = useState(false);
   const [fechaDesde, setFechaDesde] = useState("");
   const [fechaHasta, setFechaHasta] = useState("");
 
@@ -97,11 +100,27 @@ const GrillaPedidos = () => {
     }
   };
 
+  // Trae la página siguiente y la agrega al final de la lista
+  const cargarMas = async () => {
+    if (!siguienteCursor) return;
+    setCargandoMas(true);
+    try {
+      const pagina = await fetchPaginaPedidos(siguienteCursor);
+      setPedidos((anteriores) => [...anteriores, ...pagina.pedidos]);
+      setSiguienteCursor(pagina.siguienteCursor);
+    } catch (err) {
+      setError(err instanceof Error ? err.message : "Error desconocido al cargar pedidos");
+    } finally {
+      setCargandoMas(false);
+    }
+  };
+
   useEffect(() => {
     const cargarPedidos = async () => {
       try {
-        const data = await fetchPedidos();
-        setPedidos(data);
+        const pagina = await fetchPaginaPedidos();
+        setPedidos(pagina.pedidos);
+        setSiguienteCursor(pagina.siguienteCursor);
       } catch (err) {
         if (err instanceof Error) {
           setError(err.message);
@@ -113,6 +132,18 @@ const GrillaPedidos = () => {
       }
     };
     cargarPedidos();
+
+    // Pedidos nuevos en vivo: se agregan arriba sin volver a pedir la lista.
+    // Si se cortó la conexión se vuelve a leer la primera página.
+    return suscribirPedidosCreados(
+      (delta) =>
+        setPedidos((anteriores) =>
+          anteriores.some((pedido) => pedido.id === delta.pedido.id)
+            ? anteriores
+            : [delta.pedido, ...anteriores]
+        ),
+      cargarPedidos
+    );
   }, []);
 
   const formatFecha = (fechaISO: string) => {
@@ -186,12 +217,17 @@ const GrillaPedidos = () => {
             ))}
           </div>
         )}
+        {siguienteCursor && (
+          <button className="btn-cargar-mas" onClick={cargarMas} disabled={cargandoMas}>
+            {cargandoMas ? "Cargando..." : "Cargar más pedidos"}
+          </button>
+        )}
       </Contenedor>
 
       {/* Renderiza los nuevos componentes de gráficos aquí */}
       <div className="charts-section">
-        <BarChartPedidos />
-        <PieChartPedidos />
+        <BarChartPedidos desde={fechaDesde} hasta={fechaHasta} />
+        <PieChartPedidos desde={fechaDesde} hasta={fechaHasta} />
       </div>
     </div>
   );
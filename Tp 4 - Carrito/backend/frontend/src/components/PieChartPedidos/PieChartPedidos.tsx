@@ -8,12 +8,19 @@ import {
   ResponsiveContainer,
 } from "recharts";
 import Contenedor from "../Contenedor/Contenedor";
+import { DistribucionGrafico } from "../../types/types";
+import { suscribirPedidosCreados } from "../../services/eventosPedidos";
 
 interface RechartsPieData {
   instrumento: string;
   cantidad: number;
 }
 
+interface PieChartPedidosProps {
+  desde?: string; // yyyy-MM-dd (vacío = sin límite)
+  hasta?: string;
+}
+
 // Componente de Tooltip personalizado
 const CustomTooltip: React.FC<any> = ({ active, payload }) => {
   if (active && payload && payload.length) {
@@ -34,10 +41,11 @@ const CustomTooltip: React.FC<any> = ({ active, payload }) => {
 };
 
 
-const PieChartPedidos: React.FC = () => {
+const PieChartPedidos: React.FC<PieChartPedidosProps> = ({ desde, hasta }) => {
   const [pieChartData, setPieChartData] = useState<RechartsPieData[] | null>(null);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
+  const [recargas, setRecargas] = useState(0);
   const [activeIndex, setActiveIndex] = useState<number | undefined>(undefined); // Nuevo estado para el índice activo
 
   useEffect(() => {
@@ -46,24 +54,29 @@ const PieChartPedidos: React.FC = () => {
         setLoading(true);
         setError(null);
 
-        const pieChartResponse = await fetch(
-          "http://localhost:8080/api/pedidos/chart/quantities-by-instrument",
-          {
-            credentials: "include",
-          }
+        const url = new URL(
+          "http://localhost:8080/api/pedidos/chart/quantities-by-instrument"
         );
+        if (desde) url.searchParams.append("from", desde);
+        if (hasta) url.searchParams.append("to", hasta);
+
+        const pieChartResponse = await fetch(url.toString(), {
+          credentials: "include",
+        });
         if (!pieChartResponse.ok) {
+          const cuerpo = await pieChartResponse.json().catch(() => null);
           throw new Error(
-            `Error al obtener datos del gráfico de torta: ${pieChartResponse.statusText}`
+            cuerpo?.error ??
+              `Error al obtener datos del gráfico de torta: ${pieChartResponse.statusText}`
           );
         }
-        const pieChartRawData: [string, number][] =
-          await pieChartResponse.json();
+        // Respuesta columnar: etiquetas[i] es el instrumento de valores[i]
+        const distribucion: DistribucionGrafico = await pieChartResponse.json();
 
-        const formattedRechartsPieData: RechartsPieData[] = pieChartRawData.map(
-          ([instrumento, cantidad]) => ({
-            instrumento: String(instrumento),
-            cantidad: Number(cantidad),
+        const formattedRechartsPieData: RechartsPieData[] = distribucion.etiquetas.map(
+          (instrumento, i) => ({
+            instrumento,
+            cantidad: distribucion.valores[i],
           })
         );
 
@@ -81,7 +94,31 @@ const PieChartPedidos: React.FC = () => {
     };
 
     fetchPieChartData();
-  }, []);
+  }, [desde, hasta, recargas]);
+
+  // Pedidos nuevos en vivo: se suman sus unidades a cada instrumento sin volver a consultar el gráfico.
+  // Si se cortó la conexión se vuelven a leer los datos completos.
+  useEffect(() => {
+    return suscribirPedidosCreados(
+      (delta) => {
+        if ((desde && delta.dia < desde) || (hasta && delta.dia > hasta)) return;
+        setPieChartData((anteriores) => {
+          if (!anteriores) return anteriores;
+          const actualizados = anteriores.map((d) => ({ ...d }));
+          delta.instrumentos.forEach((instrumento, i) => {
+            const existente = actualizados.find((d) => d.instrumento === instrumento);
+            if (existente) {
+              existente.cantidad += delta.unidades[i];
+            } else {
+              actualizados.push({ instrumento, cantidad: delta.unidades[i] });
+            }
+          });
+          return actualizados.sort((a, b) => b.cantidad - a.cantidad);
+        });
+      },
+      () => setRecargas((r) => r + 1)
+    );
+  }, [desde, hasta]);
 
   const COLORS = [
     "#E63946",
@@ -23,7 +23,7 @@
 
 // AXIOS API
 import axios, { AxiosError } from 'axios';
-import { Instrumento, NuevoInstrumento, Categoria, PedidoResponse,PedidoRequest } from '../types/types';
+import { Instrumento, NuevoInstrumento, Categoria, PedidoResponse,PedidoRequest, PaginaPedidos, Cotizacion, DetallePedidoRequest } from '../types/types';
 
 
 const apiClient = axios.create({
@@ -78,6 +78,31 @@ export const fetchPedidos = async (): Promise<PedidoResponse[]> => {
     }
 };
 
+// Función para obtener una página de pedidos (del más reciente al más antiguo).
+// Para la página siguiente se pasa el siguienteCursor de la respuesta anterior.
+export const fetchPaginaPedidos = async (cursor?: string | null, tamanio = 20): Promise<PaginaPedidos> => {
+    try {
+        const params: Record<string, string | number> = { tamanio };
+        if (cursor) params.cursor = cursor;
+        const response = await apiClient.get<PaginaPedidos>('/pedidos/pagina', { params });
+        return response.data;
+    } catch (error) {
+        const axiosError = error as AxiosError<{ message?: string }>;
+        throw new Error(`Error al obtener pedidos: ${axiosError.response?.data?.message || axiosError.message}`);
+    }
+};
+
+// Cotiza el carrito en el servidor (precios vigentes y envío) sin crear el pedido
+export const cotizarCarrito = async (detalles: DetallePedidoRequest[]): Promise<Cotizacion> => {
+    try {
+        const response = await apiClient.post<Cotizacion>('/pedidos/cotizar', { detalles });
+        return response.data;
+    } catch (error) {
+        const axiosError = error as AxiosError<{ error?: string; message?: string }>;
+        throw new Error(axiosError.response?.data?.error || axiosError.message || 'Error al cotizar el carrito');
+    }
+};
+
 // Funcion para ver las categorias
 export const fetchCategorias = async (): Promise<Categoria[]> => {
     try {
@@ -122,9 +147,19 @@ export const createInstrumento = async (instrumento: NuevoInstrumento): Promise<
 };
 
 // Funcion para modificar un instrumento
-export const updateInstrumento = async (id: number, instrumento: Instrumento): Promise<Instrumento> => {
+// cargado: stock y cantidad vendida que se leyeron al abrir el formulario; el servidor solo aplica la diferencia si cambiaron
+export const updateInstrumento = async (
+    id: number,
+    instrumento: Instrumento,
+    cargado: { stock: number | null; cantidadVendida: number }
+): Promise<Instrumento> => {
     try {
-        const response = await apiClient.put<Instrumento>(`/instrumentos/actualizar/${id}`, instrumento);
+        const response = await apiClient.put<Instrumento>(`/instrumentos/actualizar/${id}`, instrumento, {
+            params: {
+                stockCargado: cargado.stock ?? '', // vacío = sin control de stock
+                cantidadVendidaCargada: cargado.cantidadVendida
+            }
+        });
         return response.data;
     } catch (error) {
         const axiosError = error as AxiosError<{ message?: string }>;
@@ -0,0 +1,72 @@
+import { PedidoCreadoDelta } from '../types/types';
+
+const EVENTOS_URL = 'http://localhost:8080/api/pedidos/eventos'; // Server-Sent Events de pedidos creados
+const ESPERA_REINTENTO_MS = 5000;
+
+interface Oyente {
+    alCrearPedido: (delta: PedidoCreadoDelta) => void;
+    alReconectar?: () => void;
+}
+
+// Una sola conexión por pestaña, compartida por el listado y los gráficos
+const oyentes = new Set<Oyente>();
+let fuente: EventSource | null = null;
+let conectoAntes = false;
+let reintento: ReturnType<typeof setTimeout> | null = null;
+
+const conectar = () => {
+    fuente = new EventSource(EVENTOS_URL, { withCredentials: true });
+
+    fuente.addEventListener('pedido-creado', (evento) => {
+        const delta: PedidoCreadoDelta = JSON.parse((evento as MessageEvent<string>).data);
+        oyentes.forEach((oyente) => oyente.alCrearPedido(delta));
+    });
+
+    // Al reconectarse pudieron perderse pedidos (el servidor corta a los clientes que se atrasan):
+    // cada oyente vuelve a leer sus datos completos
+    fuente.onopen = () => {
+        if (conectoAntes) {
+            oyentes.forEach((oyente) => oyente.alReconectar?.());
+        }
+        conectoAntes = true;
+    };
+
+    // El navegador reintenta solo salvo que la respuesta sea un error (401, 503): ahí se reintenta acá
+    fuente.onerror = () => {
+        if (fuente?.readyState === EventSource.CLOSED && oyentes.size > 0 && !reintento) {
+            fuente = null;
+            reintento = setTimeout(() => {
+                reintento = null;
+                if (oyentes.size > 0) conectar();
+            }, ESPERA_REINTENTO_MS);
+        }
+    };
+};
+
+/**
+ * Recibe en vivo los pedidos que se crean.
+ * @param alCrearPedido - Se llama con el delta de cada pedido confirmado.
+ * @param alReconectar - Se llama al recuperar la conexión, para volver a leer los datos completos.
+ * @returns Función para dejar de recibir (cierra la conexión si no queda nadie escuchando).
+ */
+export const suscribirPedidosCreados = (
+    alCrearPedido: (delta: PedidoCreadoDelta) => void,
+    alReconectar?: () => void
+): (() => void) => {
+    const oyente: Oyente = { alCrearPedido, alReconectar };
+    oyentes.add(oyente);
+    if (!fuente && !reintento) conectar();
+
+    return () => {
+        oyentes.delete(oyente);
+        if (oyentes.size === 0) {
+            fuente?.close();
+            fuente = null;
+            conectoAntes = false;
+            if (reintento) {
+                clearTimeout(reintento);
+                reintento = null;
+            }
+        }
+    };
+};
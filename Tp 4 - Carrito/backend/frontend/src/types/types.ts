@@ -15,6 +15,7 @@ export interface Instrumento {
     precio: number;            
     costoEnvio: string;        // Ej: "Gratis" o "$500"
     cantidadVendida: number;   // Popularidad del producto
+    stock?: number | null;     // Unidades en depósito; null = sin control de stock
     marca: string;
     modelo: string;
     descripcion: string;
@@ -110,6 +111,57 @@ export interface PedidoResponse {
     detalles: DetallePedidoResponse[];
 }
 
+// Página del listado de pedidos (GET /api/pedidos/pagina)
+export interface PaginaPedidos {
+    pedidos: PedidoResponse[];
+    siguienteCursor: string | null;
+    hayMas: boolean;
+}
+
+// Cotización del carrito hecha por el servidor (POST /api/pedidos/cotizar)
+export interface Cotizacion {
+    lineas: LineaCotizacion[];
+    subtotal: number;
+    envio: number;
+    total: number;
+}
+
+export interface LineaCotizacion {
+    instrumentoId: number;
+    instrumento: string;
+    cantidad: number;
+    precioUnitario: number;
+    subtotal: number;
+    costoEnvio: number;   // 0 = envío gratis
+}
+
+// Datos de los gráficos de pedidos (GET /api/pedidos/chart/...): columnas paralelas, etiquetas[i] corresponde a valores[i]
+export type Granularidad = "day" | "week" | "month";
+
+export interface SerieGrafico {
+    granularidad: Granularidad;
+    desde: string | null;   // yyyy-MM-dd, null si no se acotó
+    hasta: string | null;
+    etiquetas: string[];    // día o lunes de la semana (yyyy-MM-dd) o mes (yyyy-MM)
+    valores: number[];
+}
+
+export interface DistribucionGrafico {
+    desde: string | null;
+    hasta: string | null;
+    etiquetas: string[];
+    valores: number[];
+}
+
+// Pedido recién creado, recibido en vivo (GET /api/pedidos/eventos, evento "pedido-creado"): suma 1 a su período
+export interface PedidoCreadoDelta {
+    pedido: PedidoResponse;
+    dia: string;            // yyyy-MM-dd (hora de Argentina, como los gráficos)
+    mes: string;            // yyyy-MM
+    instrumentos: string[]; // unidades de este pedido por instrumento: instrumentos[i] -> unidades[i]
+    unidades: number[];
+}
+
 export interface DetallePedidoResponse {
     cantidad: number;
     precioUnitario: number;
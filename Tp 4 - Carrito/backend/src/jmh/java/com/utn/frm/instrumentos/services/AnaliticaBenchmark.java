@@ -0,0 +1,62 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.util.AcumuladorPorClave;
+import com.utn.frm.instrumentos.util.ColumnasVentas;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AnaliticaBenchmark.java
+ * Consultas de la analítica de ventas en memoria (recorrido fork-join de las columnas) sobre 1M y 5M líneas:
+ * unidades por categoría y semana, importe por marca y mes, y por día con filtro de categoría.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class AnaliticaBenchmark {
+
+    @Param({"1000000", "5000000"})
+    private int lineas;
+
+    private ColumnasVentas columnas;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        columnas = DatosSinteticos.columnasVentas(lineas);
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public int categoriaPorSemana() {
+        return agrupar(new AnaliticaVentasService.Filtro(), DimensionAnalitica.CATEGORIA, DimensionAnalitica.SEMANA);
+    }
+
+    @Benchmark
+    public int marcaPorMes() {
+        return agrupar(new AnaliticaVentasService.Filtro(), DimensionAnalitica.MARCA, DimensionAnalitica.MES);
+    }
+
+    @Benchmark
+    public int diaConFiltroCategoria() {
+        AnaliticaVentasService.Filtro filtro = new AnaliticaVentasService.Filtro();
+        filtro.categoria = 2;
+        return agrupar(filtro, DimensionAnalitica.DIA);
+    }
+
+    private int agrupar(AnaliticaVentasService.Filtro filtro, DimensionAnalitica... dimensiones) {
+        AcumuladorPorClave resultado = AnaliticaVentasService.agrupar(pool, columnas.getBloques(), columnas.getFilas(),
+                filtro, dimensiones);
+        return resultado.tamanio();
+    }
+}
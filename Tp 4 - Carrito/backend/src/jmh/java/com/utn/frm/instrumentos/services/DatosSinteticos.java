@@ -0,0 +1,112 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.FilaReportePedidoDTO;
+import com.utn.frm.instrumentos.entities.Categoria;
+import com.utn.frm.instrumentos.entities.Instrumento;
+import com.utn.frm.instrumentos.entities.Pedido;
+import com.utn.frm.instrumentos.entities.PedidoDetalle;
+import com.utn.frm.instrumentos.util.ColumnasVentas;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * DatosSinteticos.java
+ * Datos de prueba para los benchmarks, generados en memoria con semilla fija
+ * (mismos datos en cada corrida, sin base de datos).
+ */
+final class DatosSinteticos {
+
+    static final ZonedDateTime FECHA_BASE = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.of("America/Argentina/Buenos_Aires"));
+
+    private static final int CANTIDAD_INSTRUMENTOS = 200;
+    private static final String[] CATEGORIAS = {"Cuerda", "Viento", "Percusión", "Teclado", "Electrónico"};
+
+    private DatosSinteticos() {
+    }
+
+    static List<Instrumento> instrumentos() {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Categoria> categorias = new ArrayList<>();
+        for (int i = 0; i < CATEGORIAS.length; i++) {
+            Categoria categoria = new Categoria(CATEGORIAS[i]);
+            categoria.setId((long) i + 1);
+            categorias.add(categoria);
+        }
+        List<Instrumento> instrumentos = new ArrayList<>();
+        for (int i = 0; i < CANTIDAD_INSTRUMENTOS; i++) {
+            Instrumento instrumento = new Instrumento("Instrumento " + i, "Marca " + (i % 17), "Modelo " + i, "img" + i + ".jpg",
+                    BigDecimal.valueOf(random.nextInt(1_000, 5_000_000), 2), i % 3 == 0 ? "G" : "1500",
+                    0, "Descripción del instrumento " + i, categorias.get(i % categorias.size()));
+            instrumento.setId((long) i + 1);
+            instrumentos.add(instrumento);
+        }
+        return instrumentos;
+    }
+
+    // Pedidos con entre 1 y 5 detalles, uno cada 7 minutos desde FECHA_BASE
+    static List<Pedido> pedidos(int cantidad) {
+        SplittableRandom random = new SplittableRandom(7);
+        List<Instrumento> instrumentos = instrumentos();
+        List<Pedido> pedidos = new ArrayList<>(cantidad);
+        long idDetalle = 1;
+        for (int i = 0; i < cantidad; i++) {
+            Pedido pedido = new Pedido();
+            pedido.setId((long) i + 1);
+            pedido.setFecha(FECHA_BASE.plusMinutes(7L * i));
+            int lineas = random.nextInt(1, 6);
+            for (int j = 0; j < lineas; j++) {
+                Instrumento instrumento = instrumentos.get(random.nextInt(instrumentos.size()));
+                PedidoDetalle detalle = new PedidoDetalle();
+                detalle.setId(idDetalle++);
+                detalle.setCantidad(random.nextInt(1, 10));
+                detalle.setPrecioUnitario(instrumento.getPrecio());
+                detalle.setInstrumento(instrumento);
+                detalle.setPedido(pedido);
+                pedido.getDetalles().add(detalle);
+            }
+            pedido.setTotal(PedidoService.calcularTotal(pedido.getDetalles()));
+            pedidos.add(pedido);
+        }
+        return pedidos;
+    }
+
+    // Filas planas como las que devuelve la consulta del reporte
+    static List<FilaReportePedidoDTO> filasReporte(int cantidad) {
+        SplittableRandom random = new SplittableRandom(11);
+        List<Instrumento> instrumentos = instrumentos();
+        List<FilaReportePedidoDTO> filas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Instrumento instrumento = instrumentos.get(random.nextInt(instrumentos.size()));
+            int cantidadVendida = random.nextInt(1, 10);
+            filas.add(new FilaReportePedidoDTO(FECHA_BASE.plusSeconds(97L * i), instrumento.getId(),
+                    instrumento.getInstrumento(), instrumento.getMarca(), instrumento.getModelo(), cantidadVendida,
+                    instrumento.getPrecio(), instrumento.getPrecio().multiply(BigDecimal.valueOf(cantidadVendida)),
+                    instrumento.getCategoria().getId(), instrumento.getCategoria().getDenominacion()));
+        }
+        return filas;
+    }
+
+    // Líneas de pedido ya cargadas en columnas, como las que arma AnaliticaVentasService (marca y categoría codificadas)
+    static ColumnasVentas columnasVentas(int cantidad) {
+        SplittableRandom random = new SplittableRandom(13);
+        List<Instrumento> instrumentos = instrumentos();
+        ColumnasVentas columnas = new ColumnasVentas();
+        int diaBase = (int) FECHA_BASE.toLocalDate().toEpochDay();
+        for (int i = 0; i < cantidad; i++) {
+            Instrumento instrumento = instrumentos.get(random.nextInt(instrumentos.size()));
+            int dia = diaBase + (int) (97L * i / 86_400);
+            LocalDate fecha = LocalDate.ofEpochDay(dia);
+            columnas.agregar(dia, fecha.getYear() * 12 + fecha.getMonthValue() - 1, i / 3 + 1, instrumento.getId(),
+                    random.nextInt(1, 10), instrumento.getPrecio().movePointRight(2).longValueExact(),
+                    (int) (instrumento.getId() % 17), (int) ((instrumento.getId() - 1) % CATEGORIAS.length));
+        }
+        columnas.publicar();
+        return columnas;
+    }
+}
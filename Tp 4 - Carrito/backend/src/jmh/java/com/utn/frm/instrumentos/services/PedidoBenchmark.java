@@ -0,0 +1,68 @@
+package com.utn.frm.instrumentos.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.utn.frm.instrumentos.dto.PedidoResponseDTO;
+import com.utn.frm.instrumentos.entities.Pedido;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PedidoBenchmark.java
+ * Caminos calientes de los pedidos sobre datos sintéticos:
+ * - cálculo del total en crearPedido,
+ * - conversión entidad -> PedidoResponseDTO (convertirAResponseDTO y sus conversiones anidadas),
+ * - serialización JSON de la lista de pedidos con un ObjectMapper configurado como el de Spring Boot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PedidoBenchmark {
+
+    @Param({"100", "10000"})
+    private int pedidos;
+
+    private List<Pedido> entidades;
+    private List<PedidoResponseDTO> dtos;
+    private PedidoService pedidoService;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        // Las conversiones no usan los repositorios, alcanza con la instancia sin inyectar
+        pedidoService = new PedidoService();
+        entidades = DatosSinteticos.pedidos(pedidos);
+        dtos = new ArrayList<>(entidades.size());
+        for (Pedido pedido : entidades) {
+            dtos.add(pedidoService.convertirAResponseDTO(pedido));
+        }
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public void calcularTotal(Blackhole bh) {
+        for (Pedido pedido : entidades) {
+            bh.consume(PedidoService.calcularTotal(pedido.getDetalles()));
+        }
+    }
+
+    @Benchmark
+    public void convertirAResponseDTO(Blackhole bh) {
+        for (Pedido pedido : entidades) {
+            bh.consume(pedidoService.convertirAResponseDTO(pedido));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializarPedidos() throws Exception {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+}
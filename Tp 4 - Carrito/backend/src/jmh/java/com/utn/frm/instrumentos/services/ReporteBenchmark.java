@@ -0,0 +1,65 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.FilaReportePedidoDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReporteBenchmark.java
+ * Escritura de las filas del reporte de pedidos (lo que hace generarReporteExcel después de leer
+ * cada fila de la base), en cada formato y para 10k, 100k y 1M filas.
+ * La salida se descarta, así se mide solo el armado del documento.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ReporteBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int filas;
+
+    @Param({"XLSX", "CSV", "NDJSON"})
+    private FormatoReporte formato;
+
+    private List<FilaReportePedidoDTO> datos;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        datos = DatosSinteticos.filasReporte(filas);
+    }
+
+    @Benchmark
+    public long generarReporte() throws IOException {
+        ContadorBytes salida = new ContadorBytes();
+        try (EscritorReporte escritor = EscritorReporte.crear(formato, salida, 100)) {
+            escritor.escribirCabecera();
+            for (FilaReportePedidoDTO fila : datos) {
+                escritor.escribirFila(fila);
+            }
+            escritor.finalizar();
+        }
+        return salida.bytes;
+    }
+
+    // Descarta lo escrito; devolver el total evita que JMH elimine el trabajo como código muerto
+    private static class ContadorBytes extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
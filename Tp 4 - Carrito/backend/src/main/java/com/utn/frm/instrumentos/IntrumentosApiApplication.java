@@ -2,8 +2,10 @@ package com.utn.frm.instrumentos;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class IntrumentosApiApplication {
 
 	public static void main(String[] args) {
@@ -102,14 +102,50 @@ public class SecurityConfig {
                         .requestMatchers(new AntPathRequestMatcher("/api/categoria/**")).hasRole("ADMIN")
 
                         // --- REGLAS PARA PEDIDOS ---
+                        // Cotizar el carrito (POST /api/pedidos/cotizar): no guarda nada, lo usa cualquier visitante
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/cotizar", HttpMethod.POST.name())).permitAll()
                         // Crear un pedido (POST /api/pedidos): Permitido para  USUARIO AUTENTICADO (ADMIN, OPERADOR)
                         .requestMatchers(new AntPathRequestMatcher("/api/pedidos", HttpMethod.POST.name())).hasAnyRole("ADMIN","OPERADOR")
+                        // Alta de pedidos por lote (POST /api/pedidos/batch): mismos roles que el alta individual
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/batch", HttpMethod.POST.name())).hasAnyRole("ADMIN","OPERADOR")
+                        // Alta diferida (POST /api/pedidos/async): mismos roles que el alta individual
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/async", HttpMethod.POST.name())).hasAnyRole("ADMIN","OPERADOR")
                         // Crear preferencia de MP (POST /api/pedidos/{pedidoId}/preferencia): Permitido para CUALQUIER USUARIO AUTENTICADO
                         .requestMatchers(new AntPathRequestMatcher("/api/pedidos/*/preferencia", HttpMethod.POST.name())).hasAnyRole("ADMIN","OPERADOR")
+                        // Confirmar el pago de un pedido (POST /api/pedidos/{pedidoId}/pago): descuenta el stock reservado
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/*/pago", HttpMethod.POST.name())).hasAnyRole("ADMIN","OPERADOR")
 
                         // Ver TODOS los pedidos (GET /api/pedidos): Solo para ADMIN y OPERADOR
                         .requestMatchers(new AntPathRequestMatcher("/api/pedidos", HttpMethod.GET.name())).hasAnyRole("ADMIN", "OPERADOR", "VISOR")
 
+                        // Listado paginado (GET /api/pedidos/pagina): mismos roles que el listado completo
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/pagina", HttpMethod.GET.name())).hasAnyRole("ADMIN", "OPERADOR", "VISOR")
+
+                        // Exportación NDJSON del historial (GET /api/pedidos/exportacion)
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/exportacion", HttpMethod.GET.name())).hasAnyRole("ADMIN", "OPERADOR", "VISOR")
+
+                        // Estado de un pedido de la ingesta diferida (GET /api/pedidos/async/{id})
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/async/*", HttpMethod.GET.name())).hasAnyRole("ADMIN", "OPERADOR", "VISOR")
+
+                        // Pedidos creados en vivo para los paneles (GET /api/pedidos/eventos, Server-Sent Events)
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/eventos", HttpMethod.GET.name())).hasAnyRole("ADMIN", "OPERADOR", "VISOR")
+
+                        // Métricas de la cache de pedidos (GET /api/pedidos/cache): solo ADMIN
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/cache", HttpMethod.GET.name())).hasRole("ADMIN")
+
+                        // Análisis de ventas en memoria (GET /api/pedidos/analitica)
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/analitica", HttpMethod.GET.name())).hasAnyRole("ADMIN", "OPERADOR")
+
+                        // Métricas de la cache de reportes (GET /api/pedidos/reportes/cache): solo ADMIN
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/reportes/cache", HttpMethod.GET.name())).hasRole("ADMIN")
+
+                        // Reportes en segundo plano (POST /api/pedidos/reportes, estado y descarga): mismos roles que el listado
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/reportes", HttpMethod.POST.name())).hasAnyRole("ADMIN", "OPERADOR", "VISOR")
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/reportes/**", HttpMethod.GET.name())).hasAnyRole("ADMIN", "OPERADOR", "VISOR")
+
+                        // Reconstruir el rollup mensual del gráfico de pedidos: solo ADMIN
+                        .requestMatchers(new AntPathRequestMatcher("/api/pedidos/chart/rollup/reconstruir", HttpMethod.POST.name())).hasRole("ADMIN")
+
                         // Ver UN pedido por ID (GET /api/pedidos/{id})
                         .requestMatchers(new AntPathRequestMatcher("/api/pedidos/{id}", HttpMethod.GET.name())).hasAnyRole("ADMIN", "OPERADOR", "VISOR")
 
@@ -1,14 +1,24 @@
 package com.utn.frm.instrumentos.controllers;
 
+import com.utn.frm.instrumentos.dto.ResultadoImportacionDTO;
 import com.utn.frm.instrumentos.entities.Categoria;
 import com.utn.frm.instrumentos.entities.Instrumento;
 import com.utn.frm.instrumentos.repositories.CategoriaRepository;
 import com.utn.frm.instrumentos.repositories.InstrumentoRepository;
+import com.utn.frm.instrumentos.services.ImportacionInstrumentosService;
+import com.utn.frm.instrumentos.services.StockService;
+import com.utn.frm.instrumentos.services.TablaPreciosService;
+import com.utn.frm.instrumentos.services.VentasInstrumentoService;
 import org.springframework.http.HttpStatus; // Necesario para ResponseEntity.status
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize; // Importar
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @RestController
@@ -17,11 +27,21 @@ public class InstrumentoController {
 
     private final InstrumentoRepository instrumentoRepo;
     private final CategoriaRepository categoriaRepo;
+    private final ImportacionInstrumentosService importacionService;
+    private final TablaPreciosService tablaPrecios;
+    private final VentasInstrumentoService ventas;
+    private final StockService stockService;
 
     // Inyección por constructor es correcta
-    public InstrumentoController(InstrumentoRepository instrumento, CategoriaRepository categoria) {
+    public InstrumentoController(InstrumentoRepository instrumento, CategoriaRepository categoria,
+                                 ImportacionInstrumentosService importacionService, TablaPreciosService tablaPrecios,
+                                 VentasInstrumentoService ventas, StockService stockService) {
         this.instrumentoRepo = instrumento;
         this.categoriaRepo = categoria;
+        this.importacionService = importacionService;
+        this.tablaPrecios = tablaPrecios;
+        this.ventas = ventas;
+        this.stockService = stockService;
     }
 
     /**
@@ -31,7 +51,8 @@ public class InstrumentoController {
      */
     @GetMapping("/all")
     public List<Instrumento> getAll() {
-        return instrumentoRepo.findAll();
+        // cantidadVendida incluye las ventas que todavía no se volcaron a la base
+        return ventas.conVentasPendientes(instrumentoRepo.findAll());
     }
 
     /**
@@ -47,7 +68,7 @@ public class InstrumentoController {
             // Podrías devolver una lista vacía o un ResponseEntity con 404
             return List.of(); // o ResponseEntity.notFound().build(); pero el tipo de retorno es List
         }
-        return instrumentoRepo.findByCategoria(categoria);
+        return ventas.conVentasPendientes(instrumentoRepo.findByCategoria(categoria));
     }
 
     /**
@@ -58,7 +79,8 @@ public class InstrumentoController {
     @GetMapping("/id/{id}")
     public ResponseEntity<Instrumento> getInstrumento(@PathVariable Long id) {
         Optional<Instrumento> instrumento = instrumentoRepo.findById(id);
-        return instrumento.map(ResponseEntity::ok)
+        return instrumento.map(ventas::conVentasPendientes)
+                .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -80,6 +102,7 @@ public class InstrumentoController {
             }
             instrumento.setCategoria(categoriaOpt.get());
             Instrumento nuevoInstrumento = instrumentoRepo.save(instrumento);
+            tablaPrecios.invalidar();
             return ResponseEntity.status(HttpStatus.CREATED).body(nuevoInstrumento);
         } catch (Exception e) {
             // Loguear el error es buena práctica
@@ -87,17 +110,49 @@ public class InstrumentoController {
         }
     }
 
+    /**
+     * Importa instrumentos en forma masiva desde un .xlsx o .csv. Solo Admin.
+     * La primera fila es la cabecera: instrumento, precio y categoria (id o denominación) son obligatorias;
+     * id, marca, modelo, imagen, costoEnvio, cantidadVendida y descripcion son opcionales.
+     * Las filas con id actualizan el instrumento existente (o lo crean con ese id).
+     * @param archivo Planilla a importar.
+     * @return ResponseEntity con el resultado (insertadas, actualizadas, errores por fila y filas por segundo).
+     */
+    @PostMapping("/importar")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> importar(@RequestParam("archivo") MultipartFile archivo) {
+        if (archivo.isEmpty()) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", "El archivo está vacío."));
+        }
+        try {
+            ResultadoImportacionDTO resultado = importacionService.importar(archivo);
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Collections.singletonMap("error", "Error al leer el archivo: " + e.getMessage()));
+        }
+    }
+
     /**
      * Actualiza un instrumento existente. Solo Admin.
      * @param id ID del instrumento a actualizar.
      * @param instrumentoActualizado Nuevos datos del instrumento.
+     * @param stockCargado Stock que el formulario leyó al abrirse (vacío = sin control de stock). Sin este
+     *                     parámetro el stock no se modifica; con él, solo se aplica si el administrador lo cambió
+     *                     y como diferencia, para no devolver a la venta unidades descontadas mientras tanto.
+     * @param cantidadVendidaCargada Cantidad vendida que el formulario leyó. Igual que el stock: sin este parámetro
+     *                               no se modifica, y si cambió se aplica como diferencia (no pisa ventas en curso).
      * @return ResponseEntity con el Instrumento actualizado o error.
      */
     @PutMapping("/actualizar/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> actualizar(
             @PathVariable Long id,
-            @RequestBody Instrumento instrumentoActualizado) {
+            @RequestBody Instrumento instrumentoActualizado,
+            @RequestParam(required = false) String stockCargado,
+            @RequestParam(required = false) Integer cantidadVendidaCargada) {
 
         try {
             Instrumento instrumentoExistente = instrumentoRepo.findById(id)
@@ -117,17 +172,38 @@ public class InstrumentoController {
                 return ResponseEntity.badRequest().body("Categoría no encontrada con ID: " + instrumentoActualizado.getCategoria().getId());
             }
 
+            Integer stockAnterior;
+            try {
+                stockAnterior = stockCargado == null || stockCargado.isBlank() ? null : Integer.valueOf(stockCargado.trim());
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().body("Stock cargado inválido: " + stockCargado);
+            }
+
             instrumentoExistente.setInstrumento(instrumentoActualizado.getInstrumento()); // Asumo que tienes un campo "instrumento" (nombre)
             instrumentoExistente.setMarca(instrumentoActualizado.getMarca());
             instrumentoExistente.setModelo(instrumentoActualizado.getModelo());
             instrumentoExistente.setImagen(instrumentoActualizado.getImagen());
             instrumentoExistente.setPrecio(instrumentoActualizado.getPrecio());
             instrumentoExistente.setCostoEnvio(instrumentoActualizado.getCostoEnvio());
-            instrumentoExistente.setCantidadVendida(instrumentoActualizado.getCantidadVendida());
             instrumentoExistente.setDescripcion(instrumentoActualizado.getDescripcion());
             instrumentoExistente.setCategoria(categoria);
 
             Instrumento guardado = instrumentoRepo.save(instrumentoExistente);
+            if (cantidadVendidaCargada != null && cantidadVendidaCargada != instrumentoActualizado.getCantidadVendida()) {
+                instrumentoRepo.sumarCantidadVendida(id, instrumentoActualizado.getCantidadVendida() - cantidadVendidaCargada);
+            }
+            Integer stockNuevo = instrumentoActualizado.getStock();
+            if (stockCargado != null && !Objects.equals(stockAnterior, stockNuevo)) {
+                if (stockAnterior != null && stockNuevo != null) {
+                    instrumentoRepo.sumarStock(id, stockNuevo - stockAnterior);
+                } else {
+                    instrumentoRepo.fijarStock(id, stockNuevo);
+                }
+                stockService.ajustar(id, stockAnterior, stockNuevo);
+            }
+            // Los UPDATE puntuales vacían el contexto de persistencia: se vuelve a leer con las ventas pendientes sumadas
+            guardado = instrumentoRepo.findById(id).map(ventas::conVentasPendientes).orElse(guardado);
+            tablaPrecios.invalidar();
             return ResponseEntity.ok(guardado);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al actualizar el instrumento: " + e.getMessage());
@@ -147,6 +223,8 @@ public class InstrumentoController {
         }
         try {
             instrumentoRepo.deleteById(id);
+            stockService.olvidar(id);
+            tablaPrecios.invalidar();
             return ResponseEntity.ok("Instrumento eliminado con éxito. ID: " + id);
         } catch (Exception e) {
             // Por si hay alguna restricción de FK u otro problema
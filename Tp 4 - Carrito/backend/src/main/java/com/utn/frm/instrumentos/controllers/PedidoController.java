@@ -3,32 +3,59 @@ package com.utn.frm.instrumentos.controllers;
 import com.mercadopago.exceptions.MPApiException;
 import com.mercadopago.exceptions.MPException;
 import com.mercadopago.net.MPResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.utn.frm.instrumentos.dto.ConsultaAnaliticaDTO;
+import com.utn.frm.instrumentos.dto.CotizacionDTO;
+import com.utn.frm.instrumentos.dto.DistribucionGraficoDTO;
+import com.utn.frm.instrumentos.dto.EstadisticasCachePedidosDTO;
+import com.utn.frm.instrumentos.dto.FiltroPedidosDTO;
+import com.utn.frm.instrumentos.dto.IngestaPedidoDTO;
+import com.utn.frm.instrumentos.dto.PaginaPedidosDTO;
 import com.utn.frm.instrumentos.dto.PedidoRequestDTO;
 import com.utn.frm.instrumentos.dto.PedidoResponseDTO;
 import com.utn.frm.instrumentos.dto.PreferenceResponseDTO;
-import com.utn.frm.instrumentos.entities.Pedido;
+import com.utn.frm.instrumentos.dto.ResultadoAnaliticaDTO;
+import com.utn.frm.instrumentos.dto.ResultadoLotePedidosDTO;
+import com.utn.frm.instrumentos.dto.SerieGraficoDTO;
 import com.utn.frm.instrumentos.services.PedidoService;
+import com.utn.frm.instrumentos.services.AnaliticaVentasService;
+import com.utn.frm.instrumentos.services.CotizacionService;
+import com.utn.frm.instrumentos.services.EventosPedidosService;
+import com.utn.frm.instrumentos.services.ExportacionPedidosService;
+import com.utn.frm.instrumentos.services.FormatoReporte;
+import com.utn.frm.instrumentos.services.GraficosPedidosService;
+import com.utn.frm.instrumentos.services.GranularidadGrafico;
+import com.utn.frm.instrumentos.services.IngestaPedidosService;
 import com.utn.frm.instrumentos.services.MercadoPagoService;
-import com.utn.frm.instrumentos.services.PedidoService;
-import org.springframework.core.io.Resource;
+import com.utn.frm.instrumentos.services.PedidoCacheService;
+import com.utn.frm.instrumentos.services.PedidoLoteService;
+import com.utn.frm.instrumentos.services.ReporteCacheService;
+import com.utn.frm.instrumentos.services.ReporteMensualService;
+import com.utn.frm.instrumentos.services.RollupPedidosService;
+import com.utn.frm.instrumentos.services.StockService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.sql.SQLException;
 
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +71,45 @@ public class PedidoController {
     @Autowired
     private MercadoPagoService mercadoPagoService;
 
+    @Autowired
+    private ReporteCacheService reporteCacheService;
+
+    @Autowired
+    private ReporteMensualService reporteMensualService;
+
+    @Autowired
+    private PedidoLoteService pedidoLoteService;
+
+    @Autowired
+    private ExportacionPedidosService exportacionPedidosService;
+
+    @Autowired
+    private IngestaPedidosService ingestaPedidosService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private CotizacionService cotizacionService;
+
+    @Autowired
+    private PedidoCacheService pedidoCacheService;
+
+    @Autowired
+    private RollupPedidosService rollupPedidosService;
+
+    @Autowired
+    private AnaliticaVentasService analiticaVentasService;
+
+    @Autowired
+    private GraficosPedidosService graficosPedidosService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EventosPedidosService eventosPedidosService;
+
     @PostMapping
     public ResponseEntity<?> crearPedido(@RequestBody PedidoRequestDTO pedidoRequest) {
         try {
@@ -55,23 +121,118 @@ public class PedidoController {
         }
     }
 
+    /**
+     * Cotiza el carrito (subtotal, envío y total) con los precios vigentes, sin crear el pedido.
+     */
+    @PostMapping("/cotizar")
+    public ResponseEntity<?> cotizar(@RequestBody PedidoRequestDTO carrito) {
+        try {
+            CotizacionDTO cotizacion = cotizacionService.cotizar(carrito);
+            return ResponseEntity.ok(cotizacion);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Alta de varios pedidos en una sola llamada. Devuelve el resultado de cada pedido en el orden
+     * recibido: los válidos se crean aunque otros del lote fallen.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> crearPedidosLote(@RequestBody List<PedidoRequestDTO> pedidosRequest) {
+        try {
+            ResultadoLotePedidosDTO resultado = pedidoLoteService.crearPedidos(pedidosRequest);
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Alta diferida de un pedido para picos de carga (requiere app.pedidos.ingesta.habilitada).
+     * Responde 202 con el id definitivo apenas el pedido se valida y se encola; el pedido se guarda
+     * en segundo plano y su estado se consulta en la URL del header Location.
+     */
+    @PostMapping("/async")
+    public ResponseEntity<?> crearPedidoDiferido(@RequestBody PedidoRequestDTO pedidoRequest) {
+        try {
+            IngestaPedidoDTO aceptado = ingestaPedidosService.aceptar(pedidoRequest);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/api/pedidos/async/" + aceptado.getId())
+                    .body(aceptado);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Collections.singletonMap("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Collections.singletonMap("error", "Hay demasiados pedidos en cola, intente nuevamente en unos segundos."));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/async/{pedidoId}")
+    public ResponseEntity<?> consultarPedidoDiferido(@PathVariable Long pedidoId) {
+        Optional<IngestaPedidoDTO> estado = ingestaPedidosService.consultar(pedidoId);
+        if (estado.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Collections.singletonMap("error", "Pedido no encontrado: " + pedidoId));
+        }
+        return ResponseEntity.ok(estado.get());
+    }
+
     @GetMapping
     public ResponseEntity<List<PedidoResponseDTO>> obtenerTodosPedidos() {
         return ResponseEntity.ok(pedidoService.obtenerTodosPedidos());
     }
 
+    /**
+     * Listado paginado de pedidos, del más reciente al más antiguo, con filtros opcionales.
+     * Para la página siguiente se repiten los filtros y se envía el {@code siguienteCursor} recibido.
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<?> obtenerPaginaPedidos(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime fechaDesde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime fechaHasta,
+            @RequestParam(required = false) Long instrumentoId,
+            @RequestParam(required = false) BigDecimal totalMinimo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int tamanio) {
+        try {
+            FiltroPedidosDTO filtro = new FiltroPedidosDTO(fechaDesde, fechaHasta, instrumentoId, totalMinimo);
+            PaginaPedidosDTO pagina = pedidoService.listarPedidosPagina(filtro, cursor, tamanio);
+            return ResponseEntity.ok(pagina);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Historial completo de pedidos en NDJSON (un pedido por línea, en orden de id), escrito a medida
+     * que se lee de la base. Para retomar una descarga interrumpida se envía como {@code afterId}
+     * el id del último pedido recibido completo.
+     */
+    @GetMapping(value = "/exportacion", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarPedidos(@RequestParam(defaultValue = "0") long afterId) {
+        StreamingResponseBody cuerpo = outputStream -> exportacionPedidosService.exportarNdjson(afterId, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(cuerpo);
+    }
+
     @PostMapping("/{pedidoId}/preferencia")
     public ResponseEntity<?> crearPreferenciaMercadoPago(@PathVariable Long pedidoId) {
         try {
             log.info("Solicitud para crear preferencia de Mercado Pago para pedido ID: {}", pedidoId);
-            Optional<Pedido> pedidoOptional = pedidoService.findEntidadById(pedidoId);
+            Optional<PedidoResponseDTO> pedidoOptional = pedidoService.buscarPedidoDTO(pedidoId);
             if (pedidoOptional.isEmpty()) { // Usar .isEmpty() es más idiomático desde Java 11+ que !.isPresent()
                 log.warn("Pedido no encontrado con ID: {}", pedidoId);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Collections.singletonMap("error", "Pedido no encontrado con ID: " + pedidoId));
             }
 
-            Pedido pedidoCompleto = pedidoOptional.get();
+            PedidoResponseDTO pedidoCompleto = pedidoOptional.get();
             if (pedidoCompleto.getDetalles() == null || pedidoCompleto.getDetalles().isEmpty()) {
                 log.warn("Intento de crear preferencia para pedido ID: {} sin ítems.", pedidoId);
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -81,6 +242,8 @@ public class PedidoController {
             log.debug("Llamando a mercadoPagoService.crearPreferenciaPago para pedido ID: {}", pedidoId);
             PreferenceResponseDTO preferenceResponse = mercadoPagoService.crearPreferenciaPago(pedidoCompleto);
             log.info("Preferencia de Mercado Pago creada exitosamente para pedido ID: {}. Preference ID: {}", pedidoId, preferenceResponse.getPreferenceId());
+            // El comprador va a pagar: la reserva de stock vence contando desde ahora
+            stockService.renovar(pedidoId);
             return ResponseEntity.ok(preferenceResponse);
 
         } catch (MPApiException apiEx) {
@@ -120,6 +283,43 @@ public class PedidoController {
                     .body(Collections.singletonMap("error", "Error interno al crear la preferencia de pago: " + e.getMessage()));
         }
     }
+
+    /**
+     * Confirma el pago del pedido: las unidades reservadas pasan a vendidas y se descuentan del stock.
+     * Devuelve 409 si la reserva ya venció (el stock volvió a estar disponible) o ya se confirmó.
+     * Los pedidos sin instrumentos con control de stock no tienen reserva y se confirman siempre.
+     */
+    @PostMapping("/{pedidoId}/pago")
+    public ResponseEntity<?> confirmarPago(@PathVariable Long pedidoId) {
+        if (!stockService.confirmar(pedidoId) && stockService.requiereReserva(pedidoId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Collections.singletonMap("error", "El pedido " + pedidoId + " no tiene una reserva de stock vigente."));
+        }
+        return ResponseEntity.ok(Collections.singletonMap("mensaje", "Pago confirmado para el pedido " + pedidoId));
+    }
+
+    // Métricas de la cache de pedidos por id (aciertos, fallos, desalojos, tamaño)
+    @GetMapping("/cache")
+    public ResponseEntity<EstadisticasCachePedidosDTO> estadisticasCachePedidos() {
+        return ResponseEntity.ok(pedidoCacheService.obtenerEstadisticas());
+    }
+
+    /**
+     * Pedidos creados en vivo (Server-Sent Events, evento "pedido-creado" con un PedidoCreadoDeltaDTO) para que
+     * el listado y los gráficos se actualicen sin volver a consultarse. Un cliente que no lee a tiempo es
+     * desconectado; al reconectarse debe volver a leer los datos completos.
+     */
+    @GetMapping(path = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> suscribirEventos() {
+        try {
+            return ResponseEntity.ok(eventosPedidosService.suscribir());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+    }
+
     //Obtener un PedidoResponseDTO por ID para consultar que funcione
     @GetMapping("/{pedidoId}")
     public ResponseEntity<?> obtenerPedidoPorId(@PathVariable Long pedidoId) {
@@ -136,31 +336,188 @@ public class PedidoController {
         }
     }
 
+    /**
+     * Reporte de pedidos del rango. Además de Excel soporta CSV y NDJSON, elegidos con el parámetro
+     * {@code formato} (xlsx, csv, ndjson) o por negociación con la cabecera Accept (text/csv,
+     * application/x-ndjson). Con {@code gzip=true} la salida se comprime.
+     */
     @GetMapping("/excel-pedidos")
-    public ResponseEntity<Resource> generarReporteExcel(
+    public ResponseEntity<StreamingResponseBody> generarReporteExcel(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) ZonedDateTime fechaDesde,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) ZonedDateTime fechaHasta) throws IOException {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) ZonedDateTime fechaHasta,
+            @RequestParam(required = false) String formato,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        FormatoReporte formatoReporte;
+        try {
+            formatoReporte = FormatoReporte.resolver(formato, accept);
+        } catch (IllegalArgumentException e) {
+            return errorEnStreaming(e.getMessage());
+        }
 
-        ByteArrayInputStream excelStream = pedidoService.generarReporteExcel(fechaDesde, fechaHasta);
-        InputStreamResource resource = new InputStreamResource(excelStream);
+        // El reporte se escribe directamente en la respuesta a medida que se generan las filas,
+        // salvo que el rango ya esté en la cache de reportes
+        StreamingResponseBody cuerpo = outputStream -> {
+            if (!gzip) {
+                reporteCacheService.servir(fechaDesde, fechaHasta, formatoReporte.getExtension(), outputStream,
+                        destino -> pedidoService.generarReporte(fechaDesde, fechaHasta, formatoReporte, destino, filas -> { }));
+                return;
+            }
+            SalidaGzip salida = new SalidaGzip(outputStream);
+            try {
+                reporteCacheService.servir(fechaDesde, fechaHasta, formatoReporte.getExtension(), salida,
+                        destino -> pedidoService.generarReporte(fechaDesde, fechaHasta, formatoReporte, destino, filas -> { }));
+                salida.finish();
+            } finally {
+                // Con o sin error: el stream de la respuesta lo cierra el contenedor
+                salida.liberar();
+            }
+        };
 
+        String nombreArchivo = "reporte_pedidos." + formatoReporte.getExtension() + (gzip ? ".gz" : "");
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=reporte_pedidos.xlsx")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + nombreArchivo)
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : formatoReporte.getMediaType())
+                .body(cuerpo);
+    }
+
+
+    /**
+     * Reporte Excel dividido por mes y generado en paralelo: {@code modo=hojas} devuelve un libro
+     * con una hoja por mes y {@code modo=zip} un .zip con un libro por mes.
+     */
+    @GetMapping("/excel-pedidos/mensual")
+    public ResponseEntity<StreamingResponseBody> generarReporteMensual(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) ZonedDateTime fechaDesde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) ZonedDateTime fechaHasta,
+            @RequestParam(defaultValue = "hojas") String modo) {
+
+        ReporteMensualService.Modo modoReporte;
+        try {
+            modoReporte = ReporteMensualService.Modo.valueOf(modo.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return errorEnStreaming("Modo de reporte no soportado: " + modo);
+        }
+
+        try {
+            reporteMensualService.validar(fechaDesde, fechaHasta);
+        } catch (IllegalArgumentException e) {
+            return errorEnStreaming(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return errorEnStreaming(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5"), e.getMessage());
+        }
+
+        String extension = modoReporte == ReporteMensualService.Modo.ZIP ? "zip" : "xlsx";
+        StreamingResponseBody cuerpo = outputStream -> reporteCacheService.servir(fechaDesde, fechaHasta, "mensual." + extension, outputStream,
+                destino -> reporteMensualService.generar(fechaDesde, fechaHasta, modoReporte, destino));
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=reporte_pedidos_mensual." + extension)
                 .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(resource);
+                .body(cuerpo);
     }
 
+    /**
+     * Análisis de ventas en memoria: unidades e importe agrupados por hasta dos dimensiones
+     * (dia, semana, mes, instrumento, marca, categoria), con filtros opcionales.
+     * Ejemplo: /api/pedidos/analitica?agrupar=categoria,semana&desde=2025-01-01
+     */
+    @GetMapping("/analitica")
+    public ResponseEntity<?> consultarAnalitica(
+            @RequestParam(required = false) List<String> agrupar,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) String marca,
+            @RequestParam(required = false) String categoria,
+            @RequestParam(required = false) Long instrumentoId) {
+        ConsultaAnaliticaDTO consulta = new ConsultaAnaliticaDTO();
+        if (agrupar != null) {
+            consulta.setAgrupar(agrupar);
+        }
+        consulta.setDesde(desde);
+        consulta.setHasta(hasta);
+        consulta.setMarca(marca);
+        consulta.setCategoria(categoria);
+        consulta.setInstrumentoId(instrumentoId);
+        try {
+            ResultadoAnaliticaDTO resultado = analiticaVentasService.consultar(consulta);
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Datos del gráfico de barras: cantidad de pedidos por día, semana o mes (granularity = day, week o month),
+     * con rango opcional de fechas (inclusive). Respuesta columnar: etiquetas[] y valores[] en paralelo.
+     * Ejemplo: /api/pedidos/chart/pedidos-by-month?from=2025-01-01&to=2025-03-31&granularity=week
+     */
+    @GetMapping({"/chart/pedidos-by-month", "/chart/pedidos-by-period"})
+    public ResponseEntity<?> getPedidosPorPeriodoChartData(
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(name = "granularity", defaultValue = "month") String granularidad) {
+        try {
+            SerieGraficoDTO serie = graficosPedidosService.pedidosPorPeriodo(desde, hasta, GranularidadGrafico.desde(granularidad));
+            return ResponseEntity.ok(serie);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
 
-    @GetMapping("/chart/pedidos-by-month")
-    public ResponseEntity<List<Object[]>> getContadorPedidosPorMesYAñoChartData() {
-        return ResponseEntity.ok(pedidoService.getContadorPedidosPorMesYAño());
+    // Recalcula el rollup mensual desde el historial de pedidos (carga inicial o corrección)
+    @PostMapping("/chart/rollup/reconstruir")
+    public ResponseEntity<?> reconstruirRollupMensual() {
+        int meses = rollupPedidosService.reconstruir();
+        return ResponseEntity.ok(Collections.singletonMap("meses", meses));
     }
 
-    // Nuevo endpoint para los datos del gráfico de torta
+    /**
+     * Datos del gráfico de torta: unidades vendidas por instrumento, con rango opcional de fechas (inclusive).
+     * Respuesta columnar: etiquetas[] y valores[] en paralelo, de mayor a menor.
+     */
     @GetMapping("/chart/quantities-by-instrument")
-    public ResponseEntity<List<Object[]>> getCantidadesPorInstrumentoChartData() {
-        return ResponseEntity.ok(pedidoService.getCantidadesPorInstrumento());
+    public ResponseEntity<?> getCantidadesPorInstrumentoChartData(
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        try {
+            DistribucionGraficoDTO distribucion = graficosPedidosService.cantidadesPorInstrumento(desde, hasta);
+            return ResponseEntity.ok(distribucion);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
     }
-}
 
+    /**
+     * Respuesta 400 (u otro estado con la segunda variante) con el cuerpo {"error": ...} de siempre,
+     * para los endpoints que declaran StreamingResponseBody (Spring solo los escribe en streaming si
+     * el tipo del cuerpo es ese).
+     */
+    private ResponseEntity<StreamingResponseBody> errorEnStreaming(String mensaje) {
+        return errorEnStreaming(ResponseEntity.badRequest(), mensaje);
+    }
+
+    private ResponseEntity<StreamingResponseBody> errorEnStreaming(ResponseEntity.BodyBuilder respuesta, String mensaje) {
+        return respuesta
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(salida -> salida.write(objectMapper.writeValueAsBytes(Collections.singletonMap("error", mensaje))));
+    }
+
+    // GZIP sobre la respuesta que libera la memoria nativa del Deflater sin cerrar el stream del servlet
+    private static final class SalidaGzip extends GZIPOutputStream {
+
+        private SalidaGzip(OutputStream salida) throws IOException {
+            super(salida, 64 * 1024);
+        }
 
+        private void liberar() {
+            def.end();
+        }
+    }
+}
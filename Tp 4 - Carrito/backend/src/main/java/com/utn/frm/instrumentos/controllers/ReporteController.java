@@ -0,0 +1,81 @@
+package com.utn.frm.instrumentos.controllers;
+
+import com.utn.frm.instrumentos.dto.EstadisticasCacheReporteDTO;
+import com.utn.frm.instrumentos.dto.ReporteJobDTO;
+import com.utn.frm.instrumentos.services.ReporteCacheService;
+import com.utn.frm.instrumentos.services.ReporteJobService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Controlador REST para los reportes de pedidos generados en segundo plano.
+ * - POST encola un reporte para un rango de fechas y devuelve el id del trabajo.
+ * - GET /{jobId} informa el estado y las filas escritas.
+ * - GET /{jobId}/archivo descarga el .xlsx una vez completado.
+ * - GET /cache expone las métricas de la cache de reportes.
+ */
+@RestController
+@RequestMapping("/api/pedidos/reportes")
+public class ReporteController {
+
+    private final ReporteJobService reporteJobService;
+    private final ReporteCacheService reporteCacheService;
+
+    public ReporteController(ReporteJobService reporteJobService, ReporteCacheService reporteCacheService) {
+        this.reporteJobService = reporteJobService;
+        this.reporteCacheService = reporteCacheService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> solicitarReporte(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) ZonedDateTime fechaDesde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) ZonedDateTime fechaHasta) {
+        try {
+            ReporteJobDTO job = reporteJobService.solicitar(fechaDesde, fechaHasta);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Collections.singletonMap("error", "Hay demasiados reportes en cola, intente nuevamente más tarde."));
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> consultarReporte(@PathVariable String jobId) {
+        Optional<ReporteJobDTO> job = reporteJobService.consultar(jobId);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Collections.singletonMap("error", "Reporte no encontrado o vencido: " + jobId));
+        }
+        return ResponseEntity.ok(job.get());
+    }
+
+    @GetMapping("/{jobId}/archivo")
+    public ResponseEntity<?> descargarReporte(@PathVariable String jobId) {
+        Optional<Path> archivo = reporteJobService.obtenerArchivo(jobId);
+        if (archivo.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Collections.singletonMap("error", "El reporte " + jobId + " no está disponible para descargar."));
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=reporte_pedidos.xlsx")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new FileSystemResource(archivo.get()));
+    }
+
+    @GetMapping("/cache")
+    public ResponseEntity<EstadisticasCacheReporteDTO> estadisticasCache() throws IOException {
+        return ResponseEntity.ok(reporteCacheService.obtenerEstadisticas());
+    }
+}
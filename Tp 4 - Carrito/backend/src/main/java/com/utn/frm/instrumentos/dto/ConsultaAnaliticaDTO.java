@@ -0,0 +1,33 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ConsultaAnaliticaDTO.java
+ * Consulta de análisis de ventas: hasta dos dimensiones de agrupación y filtros opcionales (null no filtra).
+ * Las fechas son días calendario de Argentina, con ambos extremos incluidos.
+ */
+public class ConsultaAnaliticaDTO {
+    private List<String> agrupar = new ArrayList<>();   // dia, semana, mes, instrumento, marca, categoria
+    private LocalDate desde;
+    private LocalDate hasta;
+    private String marca;
+    private String categoria;
+    private Long instrumentoId;
+
+    // Getters y Setters
+    public List<String> getAgrupar() { return agrupar; }
+    public void setAgrupar(List<String> agrupar) { this.agrupar = agrupar; }
+    public LocalDate getDesde() { return desde; }
+    public void setDesde(LocalDate desde) { this.desde = desde; }
+    public LocalDate getHasta() { return hasta; }
+    public void setHasta(LocalDate hasta) { this.hasta = hasta; }
+    public String getMarca() { return marca; }
+    public void setMarca(String marca) { this.marca = marca; }
+    public String getCategoria() { return categoria; }
+    public void setCategoria(String categoria) { this.categoria = categoria; }
+    public Long getInstrumentoId() { return instrumentoId; }
+    public void setInstrumentoId(Long instrumentoId) { this.instrumentoId = instrumentoId; }
+}
@@ -0,0 +1,50 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CotizacionDTO.java
+ * Precio de un carrito calculado por el servidor, sin crear el pedido.
+ * El envío se cobra una vez por instrumento, no por unidad.
+ */
+public class CotizacionDTO {
+    private List<LineaCotizacionDTO> lineas = new ArrayList<>();
+    private BigDecimal subtotal;        // Suma de precio x cantidad (lo que se guarda como total del pedido)
+    private BigDecimal envio;
+    private BigDecimal total;           // subtotal + envío
+
+    public static class LineaCotizacionDTO {
+        private Long instrumentoId;
+        private String instrumento;
+        private Integer cantidad;
+        private BigDecimal precioUnitario;
+        private BigDecimal subtotal;
+        private BigDecimal costoEnvio;  // 0 = envío gratis
+
+        // Getters y Setters
+        public Long getInstrumentoId() { return instrumentoId; }
+        public void setInstrumentoId(Long instrumentoId) { this.instrumentoId = instrumentoId; }
+        public String getInstrumento() { return instrumento; }
+        public void setInstrumento(String instrumento) { this.instrumento = instrumento; }
+        public Integer getCantidad() { return cantidad; }
+        public void setCantidad(Integer cantidad) { this.cantidad = cantidad; }
+        public BigDecimal getPrecioUnitario() { return precioUnitario; }
+        public void setPrecioUnitario(BigDecimal precioUnitario) { this.precioUnitario = precioUnitario; }
+        public BigDecimal getSubtotal() { return subtotal; }
+        public void setSubtotal(BigDecimal subtotal) { this.subtotal = subtotal; }
+        public BigDecimal getCostoEnvio() { return costoEnvio; }
+        public void setCostoEnvio(BigDecimal costoEnvio) { this.costoEnvio = costoEnvio; }
+    }
+
+    // Getters y Setters
+    public List<LineaCotizacionDTO> getLineas() { return lineas; }
+    public void setLineas(List<LineaCotizacionDTO> lineas) { this.lineas = lineas; }
+    public BigDecimal getSubtotal() { return subtotal; }
+    public void setSubtotal(BigDecimal subtotal) { this.subtotal = subtotal; }
+    public BigDecimal getEnvio() { return envio; }
+    public void setEnvio(BigDecimal envio) { this.envio = envio; }
+    public BigDecimal getTotal() { return total; }
+    public void setTotal(BigDecimal total) { this.total = total; }
+}
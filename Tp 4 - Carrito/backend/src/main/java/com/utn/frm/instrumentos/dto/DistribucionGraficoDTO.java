@@ -0,0 +1,33 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DistribucionGraficoDTO.java
+ * Datos de un gráfico de torta en formato columnar: etiquetas[i] es la categoría y valores[i] su cantidad,
+ * de mayor a menor.
+ */
+public class DistribucionGraficoDTO {
+    private LocalDate desde;            // Rango pedido; null si no se acotó
+    private LocalDate hasta;
+    private List<String> etiquetas;
+    private long[] valores;
+
+    public DistribucionGraficoDTO(LocalDate desde, LocalDate hasta, List<String> etiquetas, long[] valores) {
+        this.desde = desde;
+        this.hasta = hasta;
+        this.etiquetas = etiquetas;
+        this.valores = valores;
+    }
+
+    // Getters y Setters
+    public LocalDate getDesde() { return desde; }
+    public void setDesde(LocalDate desde) { this.desde = desde; }
+    public LocalDate getHasta() { return hasta; }
+    public void setHasta(LocalDate hasta) { this.hasta = hasta; }
+    public List<String> getEtiquetas() { return etiquetas; }
+    public void setEtiquetas(List<String> etiquetas) { this.etiquetas = etiquetas; }
+    public long[] getValores() { return valores; }
+    public void setValores(long[] valores) { this.valores = valores; }
+}
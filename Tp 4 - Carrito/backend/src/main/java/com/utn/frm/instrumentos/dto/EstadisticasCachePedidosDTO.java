@@ -0,0 +1,31 @@
+package com.utn.frm.instrumentos.dto;
+
+/**
+ * EstadisticasCachePedidosDTO.java
+ * Métricas de la cache de pedidos por id, para dimensionarla.
+ */
+public class EstadisticasCachePedidosDTO {
+    private long aciertos;
+    private long fallos;
+    private double tasaAciertos;        // aciertos / (aciertos + fallos), 0 si no hubo consultas
+    private long desalojos;             // Pedidos que salieron por falta de espacio
+    private long entradas;
+    private long bytesEstimados;
+    private long bytesMaximos;
+
+    // Getters y Setters
+    public long getAciertos() { return aciertos; }
+    public void setAciertos(long aciertos) { this.aciertos = aciertos; }
+    public long getFallos() { return fallos; }
+    public void setFallos(long fallos) { this.fallos = fallos; }
+    public double getTasaAciertos() { return tasaAciertos; }
+    public void setTasaAciertos(double tasaAciertos) { this.tasaAciertos = tasaAciertos; }
+    public long getDesalojos() { return desalojos; }
+    public void setDesalojos(long desalojos) { this.desalojos = desalojos; }
+    public long getEntradas() { return entradas; }
+    public void setEntradas(long entradas) { this.entradas = entradas; }
+    public long getBytesEstimados() { return bytesEstimados; }
+    public void setBytesEstimados(long bytesEstimados) { this.bytesEstimados = bytesEstimados; }
+    public long getBytesMaximos() { return bytesMaximos; }
+    public void setBytesMaximos(long bytesMaximos) { this.bytesMaximos = bytesMaximos; }
+}
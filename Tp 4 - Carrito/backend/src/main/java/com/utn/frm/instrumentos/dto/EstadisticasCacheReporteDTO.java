@@ -0,0 +1,31 @@
+package com.utn.frm.instrumentos.dto;
+
+/**
+ * EstadisticasCacheReporteDTO.java
+ * Métricas de la cache de reportes, para dimensionarla.
+ */
+public class EstadisticasCacheReporteDTO {
+    private long aciertos;
+    private long fallos;
+    private double tasaAciertos;        // aciertos / (aciertos + fallos), 0 si no hubo consultas
+    private long bytesServidosDesdeCache;
+    private long entradasPermanentes;   // Reportes de períodos cerrados
+    private long entradasInvalidables;  // Reportes que incluyen el período actual
+    private long bytesEnDisco;
+
+    // Getters y Setters
+    public long getAciertos() { return aciertos; }
+    public void setAciertos(long aciertos) { this.aciertos = aciertos; }
+    public long getFallos() { return fallos; }
+    public void setFallos(long fallos) { this.fallos = fallos; }
+    public double getTasaAciertos() { return tasaAciertos; }
+    public void setTasaAciertos(double tasaAciertos) { this.tasaAciertos = tasaAciertos; }
+    public long getBytesServidosDesdeCache() { return bytesServidosDesdeCache; }
+    public void setBytesServidosDesdeCache(long bytesServidosDesdeCache) { this.bytesServidosDesdeCache = bytesServidosDesdeCache; }
+    public long getEntradasPermanentes() { return entradasPermanentes; }
+    public void setEntradasPermanentes(long entradasPermanentes) { this.entradasPermanentes = entradasPermanentes; }
+    public long getEntradasInvalidables() { return entradasInvalidables; }
+    public void setEntradasInvalidables(long entradasInvalidables) { this.entradasInvalidables = entradasInvalidables; }
+    public long getBytesEnDisco() { return bytesEnDisco; }
+    public void setBytesEnDisco(long bytesEnDisco) { this.bytesEnDisco = bytesEnDisco; }
+}
@@ -0,0 +1,51 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+
+/**
+ * FilaReportePedidoDTO.java
+ * Fila plana e inmutable del reporte de pedidos: un detalle de pedido con los datos del instrumento
+ * y su categoría (los ids se usan para los resúmenes del reporte).
+ * Se construye directamente en la consulta JPQL (constructor expression), así los reportes no
+ * cargan entidades en el contexto de persistencia. El subtotal se calcula en la base de datos.
+ */
+public class FilaReportePedidoDTO {
+    private final ZonedDateTime fecha;
+    private final Long instrumentoId;
+    private final String instrumento;
+    private final String marca;
+    private final String modelo;
+    private final Integer cantidad;
+    private final BigDecimal precioUnitario;
+    private final BigDecimal subtotal;
+    private final Long categoriaId;
+    private final String categoria;
+
+    public FilaReportePedidoDTO(ZonedDateTime fecha, Long instrumentoId, String instrumento, String marca, String modelo,
+                                Integer cantidad, BigDecimal precioUnitario, BigDecimal subtotal,
+                                Long categoriaId, String categoria) {
+        this.fecha = fecha;
+        this.instrumentoId = instrumentoId;
+        this.instrumento = instrumento;
+        this.marca = marca;
+        this.modelo = modelo;
+        this.cantidad = cantidad;
+        this.precioUnitario = precioUnitario;
+        this.subtotal = subtotal;
+        this.categoriaId = categoriaId;
+        this.categoria = categoria;
+    }
+
+    // Getters
+    public ZonedDateTime getFecha() { return fecha; }
+    public Long getInstrumentoId() { return instrumentoId; }
+    public String getInstrumento() { return instrumento; }
+    public String getMarca() { return marca; }
+    public String getModelo() { return modelo; }
+    public Integer getCantidad() { return cantidad; }
+    public BigDecimal getPrecioUnitario() { return precioUnitario; }
+    public BigDecimal getSubtotal() { return subtotal; }
+    public Long getCategoriaId() { return categoriaId; }
+    public String getCategoria() { return categoria; }
+}
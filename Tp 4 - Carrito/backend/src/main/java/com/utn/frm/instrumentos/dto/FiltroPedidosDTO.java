@@ -0,0 +1,35 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+
+/**
+ * FiltroPedidosDTO.java
+ * Filtros opcionales del listado paginado de pedidos. Los campos null no filtran.
+ */
+public class FiltroPedidosDTO {
+    private ZonedDateTime fechaDesde;
+    private ZonedDateTime fechaHasta;
+    private Long instrumentoId;        // Pedidos que incluyen este instrumento
+    private BigDecimal totalMinimo;
+
+    public FiltroPedidosDTO() {
+    }
+
+    public FiltroPedidosDTO(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta, Long instrumentoId, BigDecimal totalMinimo) {
+        this.fechaDesde = fechaDesde;
+        this.fechaHasta = fechaHasta;
+        this.instrumentoId = instrumentoId;
+        this.totalMinimo = totalMinimo;
+    }
+
+    // Getters y Setters
+    public ZonedDateTime getFechaDesde() { return fechaDesde; }
+    public void setFechaDesde(ZonedDateTime fechaDesde) { this.fechaDesde = fechaDesde; }
+    public ZonedDateTime getFechaHasta() { return fechaHasta; }
+    public void setFechaHasta(ZonedDateTime fechaHasta) { this.fechaHasta = fechaHasta; }
+    public Long getInstrumentoId() { return instrumentoId; }
+    public void setInstrumentoId(Long instrumentoId) { this.instrumentoId = instrumentoId; }
+    public BigDecimal getTotalMinimo() { return totalMinimo; }
+    public void setTotalMinimo(BigDecimal totalMinimo) { this.totalMinimo = totalMinimo; }
+}
@@ -0,0 +1,35 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * IngestaPedidoDTO.java
+ * Estado de un pedido aceptado por la ingesta diferida (POST /api/pedidos/async).
+ * El id ya es el definitivo: el cliente lo consulta hasta que el estado sea PERSISTIDO.
+ */
+public class IngestaPedidoDTO {
+    private Long id;
+    private String estado;          // PENDIENTE, PERSISTIDO o FALLIDO
+    private BigDecimal total;       // Solo se conoce mientras el pedido está en memoria
+    private String error;
+
+    public IngestaPedidoDTO() {
+    }
+
+    public IngestaPedidoDTO(Long id, String estado, BigDecimal total, String error) {
+        this.id = id;
+        this.estado = estado;
+        this.total = total;
+        this.error = error;
+    }
+
+    // Getters y Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getEstado() { return estado; }
+    public void setEstado(String estado) { this.estado = estado; }
+    public BigDecimal getTotal() { return total; }
+    public void setTotal(BigDecimal total) { this.total = total; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
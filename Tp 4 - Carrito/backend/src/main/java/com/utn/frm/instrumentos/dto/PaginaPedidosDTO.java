@@ -0,0 +1,29 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.util.List;
+
+/**
+ * PaginaPedidosDTO.java
+ * Una página del listado de pedidos (del más reciente al más antiguo).
+ * {@code siguienteCursor} se envía como parámetro {@code cursor} para pedir la página siguiente;
+ * es null cuando no hay más pedidos.
+ */
+public class PaginaPedidosDTO {
+    private List<PedidoResponseDTO> pedidos;
+    private String siguienteCursor;
+    private boolean hayMas;
+
+    public PaginaPedidosDTO(List<PedidoResponseDTO> pedidos, String siguienteCursor) {
+        this.pedidos = pedidos;
+        this.siguienteCursor = siguienteCursor;
+        this.hayMas = siguienteCursor != null;
+    }
+
+    // Getters y Setters
+    public List<PedidoResponseDTO> getPedidos() { return pedidos; }
+    public void setPedidos(List<PedidoResponseDTO> pedidos) { this.pedidos = pedidos; }
+    public String getSiguienteCursor() { return siguienteCursor; }
+    public void setSiguienteCursor(String siguienteCursor) { this.siguienteCursor = siguienteCursor; }
+    public boolean isHayMas() { return hayMas; }
+    public void setHayMas(boolean hayMas) { this.hayMas = hayMas; }
+}
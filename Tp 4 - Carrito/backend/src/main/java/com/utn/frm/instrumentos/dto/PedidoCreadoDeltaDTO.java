@@ -0,0 +1,29 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.util.List;
+
+/**
+ * PedidoCreadoDeltaDTO.java
+ * Cambio que produce un pedido recién confirmado en el panel de pedidos, enviado por Server-Sent Events.
+ * Día y mes van en la hora de Argentina, los mismos períodos que usan los gráficos: el panel suma
+ * este pedido (+1) a su período.
+ */
+public class PedidoCreadoDeltaDTO {
+    private PedidoResponseDTO pedido;
+    private String dia;                 // yyyy-MM-dd
+    private String mes;                 // yyyy-MM
+    private List<String> instrumentos;  // Unidades de este pedido por instrumento: instrumentos[i] -> unidades[i]
+    private long[] unidades;
+
+    // Getters y Setters
+    public PedidoResponseDTO getPedido() { return pedido; }
+    public void setPedido(PedidoResponseDTO pedido) { this.pedido = pedido; }
+    public String getDia() { return dia; }
+    public void setDia(String dia) { this.dia = dia; }
+    public String getMes() { return mes; }
+    public void setMes(String mes) { this.mes = mes; }
+    public List<String> getInstrumentos() { return instrumentos; }
+    public void setInstrumentos(List<String> instrumentos) { this.instrumentos = instrumentos; }
+    public long[] getUnidades() { return unidades; }
+    public void setUnidades(long[] unidades) { this.unidades = unidades; }
+}
@@ -0,0 +1,37 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.time.ZonedDateTime;
+
+/**
+ * ReporteJobDTO.java
+ * Estado de un trabajo de generación de reporte de pedidos.
+ * El cliente lo consulta hasta que el estado sea COMPLETADO y luego descarga el archivo.
+ */
+public class ReporteJobDTO {
+    private String id;
+    private ZonedDateTime fechaDesde;
+    private ZonedDateTime fechaHasta;
+    private String estado;          // PENDIENTE, EN_PROCESO, COMPLETADO o FALLIDO
+    private long filasEscritas;     // Progreso: filas de detalle escritas hasta el momento
+    private String error;
+    private ZonedDateTime creado;
+    private ZonedDateTime finalizado;
+
+    // Getters y Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public ZonedDateTime getFechaDesde() { return fechaDesde; }
+    public void setFechaDesde(ZonedDateTime fechaDesde) { this.fechaDesde = fechaDesde; }
+    public ZonedDateTime getFechaHasta() { return fechaHasta; }
+    public void setFechaHasta(ZonedDateTime fechaHasta) { this.fechaHasta = fechaHasta; }
+    public String getEstado() { return estado; }
+    public void setEstado(String estado) { this.estado = estado; }
+    public long getFilasEscritas() { return filasEscritas; }
+    public void setFilasEscritas(long filasEscritas) { this.filasEscritas = filasEscritas; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    public ZonedDateTime getCreado() { return creado; }
+    public void setCreado(ZonedDateTime creado) { this.creado = creado; }
+    public ZonedDateTime getFinalizado() { return finalizado; }
+    public void setFinalizado(ZonedDateTime finalizado) { this.finalizado = finalizado; }
+}
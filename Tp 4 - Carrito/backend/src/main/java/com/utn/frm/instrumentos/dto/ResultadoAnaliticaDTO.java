@@ -0,0 +1,45 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ResultadoAnaliticaDTO.java
+ * Resultado de una consulta de análisis de ventas: una fila por grupo, ordenadas por los valores del grupo.
+ */
+public class ResultadoAnaliticaDTO {
+    private List<String> dimensiones = new ArrayList<>();
+    private List<FilaAnalitica> filas = new ArrayList<>();
+    private long lineasRecorridas;      // Líneas de pedido que había en memoria al consultar
+    private long duracionMicros;
+
+    public static class FilaAnalitica {
+        private List<String> grupo;     // Un valor por dimensión, en el mismo orden
+        private long unidades;
+        private BigDecimal importe;
+
+        public FilaAnalitica(List<String> grupo, long unidades, BigDecimal importe) {
+            this.grupo = grupo;
+            this.unidades = unidades;
+            this.importe = importe;
+        }
+
+        public List<String> getGrupo() { return grupo; }
+        public void setGrupo(List<String> grupo) { this.grupo = grupo; }
+        public long getUnidades() { return unidades; }
+        public void setUnidades(long unidades) { this.unidades = unidades; }
+        public BigDecimal getImporte() { return importe; }
+        public void setImporte(BigDecimal importe) { this.importe = importe; }
+    }
+
+    // Getters y Setters
+    public List<String> getDimensiones() { return dimensiones; }
+    public void setDimensiones(List<String> dimensiones) { this.dimensiones = dimensiones; }
+    public List<FilaAnalitica> getFilas() { return filas; }
+    public void setFilas(List<FilaAnalitica> filas) { this.filas = filas; }
+    public long getLineasRecorridas() { return lineasRecorridas; }
+    public void setLineasRecorridas(long lineasRecorridas) { this.lineasRecorridas = lineasRecorridas; }
+    public long getDuracionMicros() { return duracionMicros; }
+    public void setDuracionMicros(long duracionMicros) { this.duracionMicros = duracionMicros; }
+}
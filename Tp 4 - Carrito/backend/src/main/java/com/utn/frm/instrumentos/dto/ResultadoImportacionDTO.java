@@ -0,0 +1,50 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ResultadoImportacionDTO.java
+ * Resultado de una importación masiva del catálogo de instrumentos.
+ * Incluye los errores por fila (hasta un máximo) y el throughput de la importación.
+ */
+public class ResultadoImportacionDTO {
+    private long filasLeidas;
+    private long insertadas;
+    private long actualizadas;          // Filas con id existente (upsert)
+    private long filasConError;
+    private List<ErrorFila> errores = new ArrayList<>();
+    private long duracionMs;
+    private double filasPorSegundo;
+
+    public static class ErrorFila {
+        private long fila;              // Número de fila en el archivo (1 = cabecera)
+        private String mensaje;
+
+        public ErrorFila(long fila, String mensaje) {
+            this.fila = fila;
+            this.mensaje = mensaje;
+        }
+
+        public long getFila() { return fila; }
+        public void setFila(long fila) { this.fila = fila; }
+        public String getMensaje() { return mensaje; }
+        public void setMensaje(String mensaje) { this.mensaje = mensaje; }
+    }
+
+    // Getters y Setters
+    public long getFilasLeidas() { return filasLeidas; }
+    public void setFilasLeidas(long filasLeidas) { this.filasLeidas = filasLeidas; }
+    public long getInsertadas() { return insertadas; }
+    public void setInsertadas(long insertadas) { this.insertadas = insertadas; }
+    public long getActualizadas() { return actualizadas; }
+    public void setActualizadas(long actualizadas) { this.actualizadas = actualizadas; }
+    public long getFilasConError() { return filasConError; }
+    public void setFilasConError(long filasConError) { this.filasConError = filasConError; }
+    public List<ErrorFila> getErrores() { return errores; }
+    public void setErrores(List<ErrorFila> errores) { this.errores = errores; }
+    public long getDuracionMs() { return duracionMs; }
+    public void setDuracionMs(long duracionMs) { this.duracionMs = duracionMs; }
+    public double getFilasPorSegundo() { return filasPorSegundo; }
+    public void setFilasPorSegundo(double filasPorSegundo) { this.filasPorSegundo = filasPorSegundo; }
+}
@@ -0,0 +1,27 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.util.List;
+
+/**
+ * ResultadoLotePedidosDTO.java
+ * Respuesta de POST /api/pedidos/batch: totales y el resultado de cada pedido, en el orden recibido.
+ */
+public class ResultadoLotePedidosDTO {
+    private int recibidos;
+    private int creados;
+    private int fallidos;
+    private long duracionMs;
+    private List<ResultadoPedidoLoteDTO> resultados;
+
+    // Getters y Setters
+    public int getRecibidos() { return recibidos; }
+    public void setRecibidos(int recibidos) { this.recibidos = recibidos; }
+    public int getCreados() { return creados; }
+    public void setCreados(int creados) { this.creados = creados; }
+    public int getFallidos() { return fallidos; }
+    public void setFallidos(int fallidos) { this.fallidos = fallidos; }
+    public long getDuracionMs() { return duracionMs; }
+    public void setDuracionMs(long duracionMs) { this.duracionMs = duracionMs; }
+    public List<ResultadoPedidoLoteDTO> getResultados() { return resultados; }
+    public void setResultados(List<ResultadoPedidoLoteDTO> resultados) { this.resultados = resultados; }
+}
@@ -0,0 +1,38 @@
+package com.utn.frm.instrumentos.dto;
+
+/**
+ * ResultadoPedidoLoteDTO.java
+ * Resultado de un pedido dentro de una carga por lote: el pedido creado o el motivo del error.
+ * {@code indice} es la posición del pedido en la lista recibida (desde 0).
+ */
+public class ResultadoPedidoLoteDTO {
+    private int indice;
+    private boolean creado;
+    private PedidoResponseDTO pedido;  // null si falló
+    private String error;              // null si se creó
+
+    public static ResultadoPedidoLoteDTO creado(int indice, PedidoResponseDTO pedido) {
+        ResultadoPedidoLoteDTO resultado = new ResultadoPedidoLoteDTO();
+        resultado.indice = indice;
+        resultado.creado = true;
+        resultado.pedido = pedido;
+        return resultado;
+    }
+
+    public static ResultadoPedidoLoteDTO fallido(int indice, String error) {
+        ResultadoPedidoLoteDTO resultado = new ResultadoPedidoLoteDTO();
+        resultado.indice = indice;
+        resultado.error = error;
+        return resultado;
+    }
+
+    // Getters y Setters
+    public int getIndice() { return indice; }
+    public void setIndice(int indice) { this.indice = indice; }
+    public boolean isCreado() { return creado; }
+    public void setCreado(boolean creado) { this.creado = creado; }
+    public PedidoResponseDTO getPedido() { return pedido; }
+    public void setPedido(PedidoResponseDTO pedido) { this.pedido = pedido; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
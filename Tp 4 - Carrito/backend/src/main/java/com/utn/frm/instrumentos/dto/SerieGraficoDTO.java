@@ -0,0 +1,37 @@
+package com.utn.frm.instrumentos.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * SerieGraficoDTO.java
+ * Serie temporal de un gráfico en formato columnar: etiquetas[i] es el período y valores[i] su cantidad.
+ * Los períodos sin datos dentro del rango se devuelven con cantidad 0.
+ */
+public class SerieGraficoDTO {
+    private String granularidad;        // day, week o month
+    private LocalDate desde;            // Rango pedido; null si no se acotó
+    private LocalDate hasta;
+    private List<String> etiquetas;
+    private long[] valores;
+
+    public SerieGraficoDTO(String granularidad, LocalDate desde, LocalDate hasta, List<String> etiquetas, long[] valores) {
+        this.granularidad = granularidad;
+        this.desde = desde;
+        this.hasta = hasta;
+        this.etiquetas = etiquetas;
+        this.valores = valores;
+    }
+
+    // Getters y Setters
+    public String getGranularidad() { return granularidad; }
+    public void setGranularidad(String granularidad) { this.granularidad = granularidad; }
+    public LocalDate getDesde() { return desde; }
+    public void setDesde(LocalDate desde) { this.desde = desde; }
+    public LocalDate getHasta() { return hasta; }
+    public void setHasta(LocalDate hasta) { this.hasta = hasta; }
+    public List<String> getEtiquetas() { return etiquetas; }
+    public void setEtiquetas(List<String> etiquetas) { this.etiquetas = etiquetas; }
+    public long[] getValores() { return valores; }
+    public void setValores(long[] valores) { this.valores = valores; }
+}
@@ -36,9 +36,15 @@ public class Instrumento {
     @Column(name = "costo_envio", length = 50)
     private String costoEnvio;
 
-    @Column(name = "cantidad_vendida")
+    // Solo se escribe al crear: después la cambian el volcado de VentasInstrumentoService y las correcciones del administrador
+    @Column(name = "cantidad_vendida", updatable = false)
     private int cantidadVendida;
 
+    // Unidades en depósito; null = sin control de stock.
+    // Solo se escribe al crear: después lo cambian el volcado de StockService y los ajustes puntuales del administrador
+    @Column(name = "stock", updatable = false)
+    private Integer stock;
+
     @Column(columnDefinition = "TEXT")
     private String descripcion;
 
@@ -128,6 +134,14 @@ public class Instrumento {
         this.cantidadVendida = cantidadVendida;
     }
 
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
     public String getDescripcion() {
         return descripcion;
     }
@@ -4,6 +4,7 @@ import com.utn.frm.instrumentos.entities.PedidoDetalle;
 import jakarta.persistence.*;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,10 +15,17 @@ import java.util.List;
  * Relacionada con la tabla 'pedido' en la base de datos.
  */
 @Entity
-@Table(name = "pedido")
+@Table(name = "pedido", indexes = {
+        // Listado paginado por (fecha, id) y consultas por rango de fechas
+        @Index(name = "idx_pedido_fecha_id", columnList = "fecha, id")
+})
 public class Pedido {
+    // Ids por bloques de 50 desde la tabla secuencias_id (pooled-lo): a diferencia de IDENTITY,
+    // Hibernate conoce el id antes del INSERT y puede agrupar los inserts en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "pedido_id")
+    @TableGenerator(name = "pedido_id", table = "secuencias_id", pkColumnName = "nombre_secuencia",
+            valueColumnName = "proximo_valor", pkColumnValue = "pedido", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -26,6 +34,11 @@ public class Pedido {
     @Column(precision = 10, scale = 2, nullable = false)
     private BigDecimal total;
 
+    // Vencimiento de la reserva de stock; null si no tiene (sin control de stock, pagado o liberada).
+    // Permite reconstruir las reservas vigentes al reiniciar (ver StockService.restaurarReservas)
+    @Column(name = "reserva_vence")
+    private Instant reservaVence;
+
     @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<PedidoDetalle> detalles = new ArrayList<>();
 
@@ -56,6 +69,14 @@ public class Pedido {
         this.total = total;
     }
 
+    public Instant getReservaVence() {
+        return reservaVence;
+    }
+
+    public void setReservaVence(Instant reservaVence) {
+        this.reservaVence = reservaVence;
+    }
+
     public List<PedidoDetalle> getDetalles() {
         return detalles;
     }
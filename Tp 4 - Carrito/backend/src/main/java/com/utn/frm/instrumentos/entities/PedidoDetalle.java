@@ -12,8 +12,11 @@ import java.math.BigDecimal;
 @Entity
 @Table(name = "pedido_detalle")
 public class PedidoDetalle {
+    // Mismo esquema de ids que Pedido, con su propia fila en secuencias_id
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "pedido_detalle_id")
+    @TableGenerator(name = "pedido_detalle_id", table = "secuencias_id", pkColumnName = "nombre_secuencia",
+            valueColumnName = "proximo_valor", pkColumnValue = "pedido_detalle", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -0,0 +1,65 @@
+package com.utn.frm.instrumentos.entities;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * PedidoRollupMensual.java
+ * Totales de pedidos por mes (cantidad de pedidos, importe y unidades vendidas).
+ * Se actualiza en la misma transacción que crea cada pedido (ver RollupPedidosService),
+ * así el gráfico de pedidos por mes no recorre la tabla pedido.
+ */
+@Entity
+@Table(name = "pedido_rollup_mensual")
+public class PedidoRollupMensual {
+
+    // Mes en formato yyyy-MM, igual que la etiqueta del gráfico
+    @Id
+    @Column(length = 7)
+    private String mes;
+
+    @Column(name = "cantidad_pedidos", nullable = false)
+    private long cantidadPedidos;
+
+    @Column(precision = 14, scale = 2, nullable = false)
+    private BigDecimal total;
+
+    @Column(nullable = false)
+    private long unidades;
+
+    public PedidoRollupMensual() {
+    }
+
+    public String getMes() {
+        return mes;
+    }
+
+    public void setMes(String mes) {
+        this.mes = mes;
+    }
+
+    public long getCantidadPedidos() {
+        return cantidadPedidos;
+    }
+
+    public void setCantidadPedidos(long cantidadPedidos) {
+        this.cantidadPedidos = cantidadPedidos;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public long getUnidades() {
+        return unidades;
+    }
+
+    public void setUnidades(long unidades) {
+        this.unidades = unidades;
+    }
+}
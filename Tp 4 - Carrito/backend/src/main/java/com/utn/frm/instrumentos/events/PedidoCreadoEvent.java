@@ -0,0 +1,19 @@
+package com.utn.frm.instrumentos.events;
+
+import com.utn.frm.instrumentos.dto.PedidoResponseDTO;
+
+/**
+ * PedidoCreadoEvent.java
+ * Evento publicado cuando se crea un pedido.
+ * Los interesados lo escuchan con @TransactionalEventListener para reaccionar recién
+ * cuando la transacción que guardó el pedido hizo commit.
+ */
+public class PedidoCreadoEvent {
+    private final PedidoResponseDTO pedido;
+
+    public PedidoCreadoEvent(PedidoResponseDTO pedido) {
+        this.pedido = pedido;
+    }
+
+    public PedidoResponseDTO getPedido() { return pedido; }
+}
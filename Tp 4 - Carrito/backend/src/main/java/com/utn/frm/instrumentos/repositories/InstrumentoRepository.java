@@ -3,7 +3,11 @@ package com.utn.frm.instrumentos.repositories;
 import com.utn.frm.instrumentos.entities.Instrumento;
 import com.utn.frm.instrumentos.entities.Categoria;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -12,9 +16,26 @@ import java.util.List;
  * Repositorio para la entidad Instrumento.
  * Incluye métodos personalizados para buscar instrumentos por categoría (entidad o ID).
  * Spring Data JPA genera las consultas automáticamente basándose en los nombres de los métodos.
+ * El stock y la cantidad vendida no se guardan con la entidad: se cambian con UPDATE puntuales para no pisar
+ * los volcados de StockService y VentasInstrumentoService.
  */
 @Repository
 public interface InstrumentoRepository extends JpaRepository<Instrumento, Long> {
     List<Instrumento> findByCategoria(Categoria categoria);      // Busca por entidad Categoria
     List<Instrumento> findByCategoriaId(Long idCategoria);       // Busca por ID de categoría
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Instrumento i SET i.stock = i.stock + :diferencia WHERE i.id = :id AND i.stock IS NOT NULL")
+    int sumarStock(@Param("id") Long id, @Param("diferencia") int diferencia);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Instrumento i SET i.stock = :stock WHERE i.id = :id")
+    int fijarStock(@Param("id") Long id, @Param("stock") Integer stock);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Instrumento i SET i.cantidadVendida = i.cantidadVendida + :diferencia WHERE i.id = :id")
+    int sumarCantidadVendida(@Param("id") Long id, @Param("diferencia") int diferencia);
 }
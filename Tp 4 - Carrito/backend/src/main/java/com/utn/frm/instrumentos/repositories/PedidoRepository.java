@@ -1,16 +1,28 @@
 package com.utn.frm.instrumentos.repositories;
 
+import com.utn.frm.instrumentos.dto.FilaReportePedidoDTO;
 import com.utn.frm.instrumentos.entities.Pedido;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.time.ZonedDateTime;
+import java.util.stream.Stream;
 
 @Repository
-public interface PedidoRepository extends JpaRepository<Pedido, Long> {
+public interface PedidoRepository extends JpaRepository<Pedido, Long>, PedidoRepositoryCustom {
+
+    // Filas que el driver trae por viaje cuando se lee con cursor (requiere useCursorFetch=true en MySQL)
+    String FETCH_SIZE_STREAMING = "500";
 
     @Query("SELECT p FROM Pedido p LEFT JOIN FETCH p.detalles d LEFT JOIN FETCH d.instrumento")
     List<Pedido> findAllWithDetalles();
@@ -18,25 +30,110 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
     @Query("SELECT p FROM Pedido p LEFT JOIN FETCH p.detalles d LEFT JOIN FETCH d.instrumento WHERE p.id = :id")
     Optional<Pedido> findByIdWithDetallesAndInstrumentos(@Param("id") Long id);
 
+    // Segunda fase del listado paginado: trae con sus detalles solo los pedidos de la página
+    @Query("SELECT p FROM Pedido p LEFT JOIN FETCH p.detalles d LEFT JOIN FETCH d.instrumento " +
+            "WHERE p.id IN :ids ORDER BY p.fecha DESC, p.id DESC")
+    List<Pedido> findByIdInWithDetalles(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT p FROM Pedido p LEFT JOIN FETCH p.detalles d LEFT JOIN FETCH d.instrumento WHERE p.fecha BETWEEN :fechaInicio AND :fechaFin")
     List<Pedido> findByFechaBetweenWithDetalles(
             @Param("fechaInicio") ZonedDateTime fechaInicio,
             @Param("fechaFin") ZonedDateTime fechaFin
     );
 
-    // Consulta para el Gráfico de Barras: Pedidos por Mes y Año
-    // Usa FUNCTION('FORMATDATETIME', ...) para agrupar por mes y año directamente en la consulta JPQL
-    @Query(value = "SELECT DATE_FORMAT(p.fecha, '%Y-%m'), COUNT(p.id) " +
-            "FROM pedido p GROUP BY DATE_FORMAT(p.fecha, '%Y-%m') ORDER BY DATE_FORMAT(p.fecha, '%Y-%m')",
-            nativeQuery = true)
-    List<Object[]> contadorPedidosPorMesYAño();
+    // Versión con cursor de la consulta anterior para lecturas masivas (reportes, exportaciones).
+    // Debe consumirse dentro de una transacción y cerrarse al terminar. El ORDER BY por id mantiene
+    // juntas las filas de cada pedido para que Hibernate arme la colección de detalles completa.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = FETCH_SIZE_STREAMING),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Pedido p LEFT JOIN FETCH p.detalles d LEFT JOIN FETCH d.instrumento " +
+            "WHERE p.fecha BETWEEN :fechaInicio AND :fechaFin ORDER BY p.fecha, p.id")
+    Stream<Pedido> streamByFechaBetweenWithDetalles(
+            @Param("fechaInicio") ZonedDateTime fechaInicio,
+            @Param("fechaFin") ZonedDateTime fechaFin
+    );
+
+    // Historial completo con cursor, en orden de id, a partir del id indicado (exclusivo).
+    // Ordenar por id permite retomar una exportación interrumpida desde el último id recibido.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = FETCH_SIZE_STREAMING),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Pedido p LEFT JOIN FETCH p.detalles d LEFT JOIN FETCH d.instrumento " +
+            "WHERE p.id > :afterId ORDER BY p.id")
+    Stream<Pedido> streamByIdGreaterThanWithDetalles(@Param("afterId") Long afterId);
+
+    // Modelo de lectura de los reportes: una fila plana por detalle, sin cargar entidades.
+    // El subtotal se calcula en SQL y el orden coincide con el del reporte (fecha, pedido, detalle).
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = FETCH_SIZE_STREAMING),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.utn.frm.instrumentos.dto.FilaReportePedidoDTO(" +
+            "p.fecha, i.id, i.instrumento, i.marca, i.modelo, d.cantidad, d.precioUnitario, d.precioUnitario * d.cantidad, " +
+            "c.id, c.denominacion) " +
+            "FROM PedidoDetalle d JOIN d.pedido p JOIN d.instrumento i JOIN i.categoria c " +
+            "WHERE p.fecha BETWEEN :fechaInicio AND :fechaFin ORDER BY p.fecha, p.id, d.id")
+    Stream<FilaReportePedidoDTO> streamFilasReporte(
+            @Param("fechaInicio") ZonedDateTime fechaInicio,
+            @Param("fechaFin") ZonedDateTime fechaFin
+    );
+
+    // Carga de la analítica en memoria: una fila por detalle [pedido, fecha, instrumento, cantidad, precio unitario]
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = FETCH_SIZE_STREAMING),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.id, p.fecha, d.instrumento.id, d.cantidad, d.precioUnitario FROM PedidoDetalle d JOIN d.pedido p")
+    Stream<Object[]> streamLineasAnalitica();
+
+    // Reconstrucción del rollup mensual: [año, mes, día, hora, cantidad de pedidos, total] y [año, mes, día, hora, unidades],
+    // por hora en UTC (como se guarda fecha) para pasarlas al mes de Argentina al agrupar.
+    // Recorren todo el historial; el gráfico de pedidos por mes lee de pedido_rollup_mensual.
+    @Query("SELECT year(p.fecha), month(p.fecha), day(p.fecha), hour(p.fecha), COUNT(p), SUM(p.total) FROM Pedido p " +
+            "GROUP BY year(p.fecha), month(p.fecha), day(p.fecha), hour(p.fecha)")
+    List<Object[]> totalesPorHora();
+
+    @Query("SELECT year(p.fecha), month(p.fecha), day(p.fecha), hour(p.fecha), SUM(d.cantidad) FROM PedidoDetalle d JOIN d.pedido p " +
+            "GROUP BY year(p.fecha), month(p.fecha), day(p.fecha), hour(p.fecha)")
+    List<Object[]> unidadesPorHora();
     
-    // Consulta para el Gráfico de Torta: Cantidad de Instrumentos Vendidos
-    // Suma las cantidades de los detalles de pedido agrupados por instrumento
-    @Query("SELECT pd.instrumento.instrumento, SUM(pd.cantidad) " +
-            "FROM PedidoDetalle pd GROUP BY pd.instrumento.instrumento ORDER BY SUM(pd.cantidad) DESC")
-    List<Object[]> sumaCantidadesPorInstrumento();
+    // Ventas por instrumento: [id, nombre, unidades, importe]. Recorre todo pedido_detalle; se usa para
+    // cargar y reconciliar el agregado en memoria que responde el gráfico de torta.
+    @Query("SELECT i.id, i.instrumento, SUM(pd.cantidad), SUM(pd.precioUnitario * pd.cantidad) " +
+            "FROM PedidoDetalle pd JOIN pd.instrumento i GROUP BY i.id, i.instrumento")
+    List<Object[]> ventasPorInstrumento();
+
+    // Gráficos con rango de fechas: el filtro compara p.fecha directamente contra [desde, hasta) para que
+    // MySQL recorra solo ese tramo de idx_pedido_fecha_id; las funciones de fecha quedan en el SELECT/GROUP BY.
+    // Pedidos por hora (en UTC, como se guarda fecha): [año, mes, día, hora, cantidad]; el día de Argentina se arma después.
+    @Query("SELECT year(p.fecha), month(p.fecha), day(p.fecha), hour(p.fecha), COUNT(p) FROM Pedido p " +
+            "WHERE p.fecha >= :desde AND p.fecha < :hasta " +
+            "GROUP BY year(p.fecha), month(p.fecha), day(p.fecha), hour(p.fecha)")
+    List<Object[]> contadorPedidosPorHora(@Param("desde") ZonedDateTime desde, @Param("hasta") ZonedDateTime hasta);
+
+    // Fechas del primer y el último pedido del rango: [mínima, máxima], null si no hay pedidos. Con el índice
+    // de fecha son dos lecturas en los extremos del tramo, sin agrupar.
+    @Query("SELECT MIN(p.fecha), MAX(p.fecha) FROM Pedido p WHERE p.fecha >= :desde AND p.fecha < :hasta")
+    List<Object[]> extremosFechaEntre(@Param("desde") ZonedDateTime desde, @Param("hasta") ZonedDateTime hasta);
 
+    // Unidades vendidas por instrumento en el rango: [nombre, unidades], de mayor a menor
+    @Query("SELECT i.instrumento, SUM(d.cantidad) FROM PedidoDetalle d JOIN d.pedido p JOIN d.instrumento i " +
+            "WHERE p.fecha >= :desde AND p.fecha < :hasta " +
+            "GROUP BY i.instrumento ORDER BY SUM(d.cantidad) DESC")
+    List<Object[]> cantidadesPorInstrumentoEntre(@Param("desde") ZonedDateTime desde, @Param("hasta") ZonedDateTime hasta);
 
+    // Líneas con control de stock de los pedidos con reserva vigente: [pedidoId, instrumentoId, stock, cantidad, vence]
+    @Query("SELECT p.id, i.id, i.stock, d.cantidad, p.reservaVence FROM PedidoDetalle d JOIN d.pedido p JOIN d.instrumento i " +
+            "WHERE p.reservaVence > :ahora AND i.stock IS NOT NULL")
+    List<Object[]> lineasConReservaVigente(@Param("ahora") Instant ahora);
 
+    @Transactional
+    @Modifying
+    @Query("UPDATE Pedido p SET p.reservaVence = :vence WHERE p.id = :id")
+    int actualizarReservaVence(@Param("id") Long id, @Param("vence") Instant vence);
 }
\ No newline at end of file
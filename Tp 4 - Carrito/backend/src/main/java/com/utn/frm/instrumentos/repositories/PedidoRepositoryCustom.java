@@ -0,0 +1,22 @@
+package com.utn.frm.instrumentos.repositories;
+
+import com.utn.frm.instrumentos.dto.FiltroPedidosDTO;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * PedidoRepositoryCustom.java
+ * Consultas de pedidos armadas con Criteria (filtros opcionales), implementadas en PedidoRepositoryImpl.
+ */
+public interface PedidoRepositoryCustom {
+
+    /**
+     * Ids de una página de pedidos ordenada por (fecha, id) descendente.
+     * Con cursor devuelve solo los pedidos posteriores a (fechaCursor, idCursor) en ese orden (keyset),
+     * así la consulta usa el índice (fecha, id) y no recorre las páginas anteriores.
+     * @param fechaCursor fecha del último pedido de la página anterior, o null para la primera página.
+     * @param idCursor id del último pedido de la página anterior, o null para la primera página.
+     */
+    List<Long> buscarIdsPagina(FiltroPedidosDTO filtro, ZonedDateTime fechaCursor, Long idCursor, int limite);
+}
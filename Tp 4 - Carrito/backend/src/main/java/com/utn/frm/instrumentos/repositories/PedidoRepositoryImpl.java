@@ -0,0 +1,66 @@
+package com.utn.frm.instrumentos.repositories;
+
+import com.utn.frm.instrumentos.dto.FiltroPedidosDTO;
+import com.utn.frm.instrumentos.entities.Pedido;
+import com.utn.frm.instrumentos.entities.PedidoDetalle;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PedidoRepositoryImpl.java
+ * Implementación de PedidoRepositoryCustom. Spring Data la combina con PedidoRepository por el sufijo Impl.
+ */
+public class PedidoRepositoryImpl implements PedidoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> buscarIdsPagina(FiltroPedidosDTO filtro, ZonedDateTime fechaCursor, Long idCursor, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Pedido> pedido = query.from(Pedido.class);
+
+        List<Predicate> condiciones = new ArrayList<>();
+        if (filtro.getFechaDesde() != null) {
+            condiciones.add(cb.greaterThanOrEqualTo(pedido.get("fecha"), filtro.getFechaDesde()));
+        }
+        if (filtro.getFechaHasta() != null) {
+            condiciones.add(cb.lessThanOrEqualTo(pedido.get("fecha"), filtro.getFechaHasta()));
+        }
+        if (filtro.getTotalMinimo() != null) {
+            condiciones.add(cb.greaterThanOrEqualTo(pedido.get("total"), filtro.getTotalMinimo()));
+        }
+        if (filtro.getInstrumentoId() != null) {
+            // EXISTS en lugar de JOIN: un pedido con varias líneas del instrumento no se repite
+            Subquery<Long> conInstrumento = query.subquery(Long.class);
+            Root<PedidoDetalle> detalle = conInstrumento.from(PedidoDetalle.class);
+            conInstrumento.select(detalle.get("id")).where(
+                    cb.equal(detalle.get("pedido"), pedido),
+                    cb.equal(detalle.get("instrumento").get("id"), filtro.getInstrumentoId()));
+            condiciones.add(cb.exists(conInstrumento));
+        }
+        if (fechaCursor != null && idCursor != null) {
+            // (fecha, id) < (fechaCursor, idCursor) en orden descendente
+            condiciones.add(cb.or(
+                    cb.lessThan(pedido.get("fecha"), fechaCursor),
+                    cb.and(cb.equal(pedido.get("fecha"), fechaCursor), cb.lessThan(pedido.get("id"), idCursor))));
+        }
+
+        query.select(pedido.get("id"))
+                .where(condiciones.toArray(new Predicate[0]))
+                .orderBy(cb.desc(pedido.get("fecha")), cb.desc(pedido.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+}
@@ -0,0 +1,26 @@
+package com.utn.frm.instrumentos.repositories;
+
+import com.utn.frm.instrumentos.entities.PedidoRollupMensual;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * PedidoRollupMensualRepository.java
+ * Repositorio de los totales mensuales de pedidos. Las altas e incrementos se hacen con
+ * upserts desde RollupPedidosService.
+ */
+@Repository
+public interface PedidoRollupMensualRepository extends JpaRepository<PedidoRollupMensual, String> {
+
+    // Datos del gráfico de barras: [mes, cantidad de pedidos] en orden cronológico
+    @Query("SELECT r.mes, r.cantidadPedidos FROM PedidoRollupMensual r ORDER BY r.mes")
+    List<Object[]> contadorPedidosPorMes();
+
+    // Lo mismo acotado a un rango de meses (yyyy-MM, inclusive): recorre solo ese tramo de la clave primaria
+    @Query("SELECT r.mes, r.cantidadPedidos FROM PedidoRollupMensual r WHERE r.mes BETWEEN :desde AND :hasta ORDER BY r.mes")
+    List<Object[]> contadorPedidosEntre(@Param("desde") String desde, @Param("hasta") String hasta);
+}
@@ -0,0 +1,155 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.repositories.PedidoRepository;
+import com.utn.frm.instrumentos.util.ContadoresPorClave;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AgregadoVentasService.java
+ * Unidades e importe vendidos por instrumento, mantenidos en memoria para el gráfico de torta.
+ * - Se cargan de la base al arrancar en los contadores por instrumento de VentasInstrumentoService, que después
+ *   suma cada pedido confirmado (evento después del commit) una sola vez para la torta y para cantidadVendida.
+ * - Cada cierto intervalo se comparan con la base. Una diferencia solo se corrige si se repite igual en dos
+ *   pasadas seguidas: las que aparecen mientras un pedido está entre el commit y su evento son pasajeras.
+ */
+@Service
+public class AgregadoVentasService {
+
+    private static final Logger log = LoggerFactory.getLogger(AgregadoVentasService.class);
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private VentasInstrumentoService ventasInstrumentoService;
+
+    private ContadoresPorClave ventas;
+    private volatile boolean cargado;
+
+    // Diferencias (unidades, centavos) con la base vistas en la reconciliación anterior, por id de instrumento
+    private Map<Long, long[]> diferenciasAnteriores = Map.of();
+
+    @PostConstruct
+    public void init() {
+        ventas = ventasInstrumentoService.getVentas();
+        try {
+            cargar();
+        } catch (DataAccessException e) {
+            // El gráfico sale de la base hasta que la reconciliación logre cargarlo
+            log.warn("No se pudieron cargar las ventas por instrumento: {}", e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private synchronized void cargar() {
+        long inicio = System.currentTimeMillis();
+        // Reemplaza lo sumado por los pedidos confirmados mientras no estaba cargado (ya están en la base);
+        // si alguno se confirma durante la consulta, la reconciliación corrige la diferencia
+        for (Object[] fila : pedidoRepository.ventasPorInstrumento()) {
+            ventas.obtenerOCrear((Long) fila[0], (String) fila[1]).reiniciar(((Number) fila[2]).longValue(), aCentavos(fila[3]));
+        }
+        cargado = true;
+        log.info("Ventas por instrumento cargadas: {} instrumentos en {} ms", ventas.tamanio(), System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Datos del gráfico de torta: [nombre del instrumento, unidades vendidas] de mayor a menor.
+     * Como la consulta original, une los instrumentos que tienen el mismo nombre.
+     */
+    public List<Object[]> cantidadesPorInstrumento() {
+        Map<String, Long> porNombre = new LinkedHashMap<>();
+        if (cargado) {
+            ventas.forEach(contadores -> {
+                long cantidad = contadores.getCantidad();
+                if (cantidad > 0) {
+                    porNombre.merge(contadores.getEtiqueta(), cantidad, Long::sum);
+                }
+            });
+        } else {
+            for (Object[] fila : pedidoRepository.ventasPorInstrumento()) {
+                porNombre.merge((String) fila[1], ((Number) fila[2]).longValue(), Long::sum);
+            }
+        }
+        List<Object[]> filas = new ArrayList<>(porNombre.size());
+        porNombre.forEach((nombre, cantidad) -> filas.add(new Object[]{nombre, cantidad}));
+        filas.sort((a, b) -> Long.compare((Long) b[1], (Long) a[1]));
+        return filas;
+    }
+
+    // Unidades e importe (centavos) de un instrumento, o ceros si no tiene ventas
+    public long[] getVentas(Long instrumentoId) {
+        ContadoresPorClave.Contadores contadores = ventas.obtener(instrumentoId);
+        return contadores == null ? new long[2] : new long[]{contadores.getCantidad(), contadores.getCentavos()};
+    }
+
+    @Scheduled(fixedDelayString = "${app.pedidos.agregado.reconciliacion-ms:300000}",
+            initialDelayString = "${app.pedidos.agregado.reconciliacion-ms:300000}")
+    public synchronized void reconciliar() {
+        if (!cargado) {
+            cargar();
+            return;
+        }
+        // Se lee la memoria antes y después de la consulta: si un instrumento cambió en el medio, no se compara
+        Map<Long, long[]> antes = leerMemoria();
+        List<Object[]> filas = pedidoRepository.ventasPorInstrumento();
+        Map<Long, long[]> despues = leerMemoria();
+
+        Map<Long, long[]> enBase = new HashMap<>();
+        for (Object[] fila : filas) {
+            Long id = (Long) fila[0];
+            enBase.put(id, new long[]{((Number) fila[2]).longValue(), aCentavos(fila[3])});
+            // El nombre puede haber cambiado desde que se cargó
+            ventas.obtenerOCrear(id, (String) fila[1]).setEtiqueta((String) fila[1]);
+        }
+
+        Map<Long, long[]> diferencias = new HashMap<>();
+        despues.forEach((id, memoria) -> {
+            if (Arrays.equals(memoria, antes.get(id))) {
+                long[] base = enBase.getOrDefault(id, new long[2]);
+                long[] diferencia = {base[0] - memoria[0], base[1] - memoria[1]};
+                if (diferencia[0] != 0 || diferencia[1] != 0) {
+                    diferencias.put(id, diferencia);
+                }
+            }
+        });
+
+        Map<Long, long[]> pendientes = new HashMap<>();
+        diferencias.forEach((id, diferencia) -> {
+            if (Arrays.equals(diferencia, diferenciasAnteriores.get(id))) {
+                log.warn("Ventas del instrumento {} corregidas en {} unidades y {} centavos", id, diferencia[0], diferencia[1]);
+                ventas.obtener(id).sumar(diferencia[0], diferencia[1]);
+            } else {
+                pendientes.put(id, diferencia);
+            }
+        });
+        diferenciasAnteriores = pendientes;
+    }
+
+    private Map<Long, long[]> leerMemoria() {
+        Map<Long, long[]> memoria = new HashMap<>();
+        ventas.forEach(contadores -> memoria.put(contadores.getClave(),
+                new long[]{contadores.getCantidad(), contadores.getCentavos()}));
+        return memoria;
+    }
+
+    static long aCentavos(Object importe) {
+        if (importe == null) {
+            return 0;
+        }
+        return ((BigDecimal) importe).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
@@ -0,0 +1,450 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.ConsultaAnaliticaDTO;
+import com.utn.frm.instrumentos.dto.DetallePedidoResponseDTO;
+import com.utn.frm.instrumentos.dto.PedidoResponseDTO;
+import com.utn.frm.instrumentos.dto.ResultadoAnaliticaDTO;
+import com.utn.frm.instrumentos.entities.Instrumento;
+import com.utn.frm.instrumentos.events.PedidoCreadoEvent;
+import com.utn.frm.instrumentos.repositories.InstrumentoRepository;
+import com.utn.frm.instrumentos.repositories.PedidoRepository;
+import com.utn.frm.instrumentos.util.AcumuladorPorClave;
+import com.utn.frm.instrumentos.util.ColumnasVentas;
+import com.utn.frm.instrumentos.util.Diccionario;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+/**
+ * AnaliticaVentasService.java
+ * Consultas de análisis (agrupar, filtrar y sumar) sobre todas las líneas de pedido, sin tocar las tablas de pedidos.
+ * - Las líneas se cargan una vez en columnas en memoria (ColumnasVentas); marca y categoría van como códigos
+ *   de diccionario. Después se agregan los pedidos nuevos a medida que se confirman.
+ * - Cada consulta recorre las columnas en paralelo (fork-join): cada tarea agrupa un tramo de filas en su
+ *   propio acumulador y los acumuladores se combinan al volver.
+ * Marca y categoría son las del instrumento al momento de cargar o de agregar la línea.
+ */
+@Service
+public class AnaliticaVentasService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnaliticaVentasService.class);
+
+    // Zona de los días, semanas y meses de la analítica, los gráficos, el rollup mensual y los eventos en vivo:
+    // la hora de Argentina, la misma con la que se fechan los pedidos
+    static final ZoneId ZONA = ZoneId.of("America/Argentina/Buenos_Aires");
+
+    // Filas que recorre cada tarea sin dividirse
+    static final int FILAS_POR_TAREA = 1 << 15;
+
+    private enum Estado { SIN_CARGAR, CARGANDO, CARGADO }
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private InstrumentoRepository instrumentoRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Hilos de las consultas (0 = uno por procesador)
+    @Value("${app.analitica.paralelismo:0}")
+    private int paralelismo;
+
+    @Value("${app.analitica.cargar-al-iniciar:true}")
+    private boolean cargarAlIniciar;
+
+    private final ColumnasVentas columnas = new ColumnasVentas();
+    private final Diccionario marcas = new Diccionario();
+    private final Diccionario categorias = new Diccionario();
+    private final Map<Long, DatosInstrumento> instrumentos = new ConcurrentHashMap<>();
+
+    private volatile Estado estado = Estado.SIN_CARGAR;
+    // Pedidos confirmados mientras se cargaba (protegido por this)
+    private final List<PedidoResponseDTO> recibidosDuranteCarga = new ArrayList<>();
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        pool = new ForkJoinPool(paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // La carga inicial corre en segundo plano para no demorar el arranque
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarEnSegundoPlano() {
+        if (cargarAlIniciar) {
+            iniciarCarga();
+        }
+    }
+
+    /**
+     * Carga todas las líneas de pedido desde la base. Los pedidos que se confirman mientras tanto se guardan
+     * aparte y al final se agregan los que la lectura no llegó a ver.
+     */
+    public void cargar() {
+        if (marcarCargando()) {
+            leerLineas();
+        }
+    }
+
+    // Arranca la carga en un hilo propio, salvo que ya esté cargado o cargándose
+    private void iniciarCarga() {
+        if (marcarCargando()) {
+            Thread hilo = new Thread(this::leerLineas, "analitica-carga");
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+    }
+
+    private synchronized boolean marcarCargando() {
+        if (estado != Estado.SIN_CARGAR) {
+            return false;
+        }
+        estado = Estado.CARGANDO;
+        return true;
+    }
+
+    private void leerLineas() {
+        long inicio = System.currentTimeMillis();
+        try {
+            // Corre fuera de un pedido HTTP (sin open-in-view): la categoría de cada instrumento se lee en la transacción
+            transactionTemplate.executeWithoutResult(status -> {
+                instrumentoRepository.findAll().forEach(this::registrarInstrumento);
+                try (Stream<Object[]> lineas = pedidoRepository.streamLineasAnalitica()) {
+                    lineas.forEach(linea -> agregarLinea((Long) linea[0], (ZonedDateTime) linea[1], (Long) linea[2],
+                            (Integer) linea[3], (BigDecimal) linea[4]));
+                }
+            });
+            synchronized (this) {
+                agregarRecibidosDuranteCarga();
+                columnas.publicar();
+                estado = Estado.CARGADO;
+            }
+            log.info("Analítica de ventas cargada: {} líneas en {} ms", columnas.getFilas(), System.currentTimeMillis() - inicio);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                columnas.vaciar();
+                recibidosDuranteCarga.clear();
+                estado = Estado.SIN_CARGAR;
+            }
+            log.error("No se pudo cargar la analítica de ventas", e);
+            throw e;
+        }
+    }
+
+    // Se llama con el lock tomado, antes de publicar la carga
+    private void agregarRecibidosDuranteCarga() {
+        if (recibidosDuranteCarga.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>();
+        recibidosDuranteCarga.forEach(pedido -> ids.add(pedido.getId()));
+        Set<Long> leidos = new HashSet<>();
+        ColumnasVentas.Bloque[] bloques = columnas.getBloques();
+        // Las filas de la carga todavía no están publicadas: se recorren todas las escritas
+        for (ColumnasVentas.Bloque bloque : bloques) {
+            for (long pedido : bloque.pedido) {
+                if (pedido != 0 && ids.contains(pedido)) {
+                    leidos.add(pedido);
+                }
+            }
+        }
+        for (PedidoResponseDTO pedido : recibidosDuranteCarga) {
+            if (!leidos.contains(pedido.getId())) {
+                agregarDetalles(pedido);
+            }
+        }
+        recibidosDuranteCarga.clear();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPedidoCreado(PedidoCreadoEvent evento) {
+        PedidoResponseDTO pedido = evento.getPedido();
+        if (estado != Estado.CARGADO) {
+            synchronized (this) {
+                if (estado == Estado.CARGANDO) {
+                    recibidosDuranteCarga.add(pedido);
+                    return;
+                }
+                if (estado == Estado.SIN_CARGAR) {
+                    return; // La carga lo va a leer de la base
+                }
+            }
+        }
+        synchronized (columnas) {
+            agregarDetalles(pedido);
+            columnas.publicar();
+        }
+    }
+
+    private void agregarDetalles(PedidoResponseDTO pedido) {
+        for (DetallePedidoResponseDTO detalle : pedido.getDetalles()) {
+            agregarLinea(pedido.getId(), pedido.getFecha(), detalle.getInstrumento().getId(), detalle.getCantidad(),
+                    detalle.getPrecioUnitario());
+        }
+    }
+
+    private void agregarLinea(long pedidoId, ZonedDateTime fecha, long instrumentoId, int cantidad, BigDecimal precioUnitario) {
+        LocalDate dia = fecha.withZoneSameInstant(ZONA).toLocalDate();
+        DatosInstrumento instrumento = datosInstrumento(instrumentoId);
+        columnas.agregar((int) dia.toEpochDay(), dia.getYear() * 12 + dia.getMonthValue() - 1, pedidoId, instrumentoId,
+                cantidad, AgregadoVentasService.aCentavos(precioUnitario), instrumento.marca, instrumento.categoria);
+    }
+
+    private DatosInstrumento datosInstrumento(long instrumentoId) {
+        DatosInstrumento datos = instrumentos.get(instrumentoId);
+        if (datos == null) {
+            // Instrumento creado después de la carga
+            datos = transactionTemplate.execute(status -> instrumentoRepository.findById(instrumentoId).map(this::registrarInstrumento))
+                    .orElseGet(() -> new DatosInstrumento("#" + instrumentoId, marcas.codificar(null), categorias.codificar(null)));
+        }
+        return datos;
+    }
+
+    private DatosInstrumento registrarInstrumento(Instrumento instrumento) {
+        DatosInstrumento datos = new DatosInstrumento(instrumento.getInstrumento(), marcas.codificar(instrumento.getMarca()),
+                categorias.codificar(instrumento.getCategoria() == null ? null : instrumento.getCategoria().getDenominacion()));
+        instrumentos.put(instrumento.getId(), datos);
+        return datos;
+    }
+
+    /**
+     * Agrupa las líneas de pedido por hasta dos dimensiones y suma unidades e importe.
+     * @throws IllegalArgumentException si la consulta es inválida.
+     * @throws IllegalStateException si los datos todavía se están cargando; si no estaban cargados
+     *         (cargar-al-iniciar=false o falló la carga) se empieza la carga en segundo plano.
+     */
+    public ResultadoAnaliticaDTO consultar(ConsultaAnaliticaDTO consulta) {
+        List<DimensionAnalitica> dimensiones = new ArrayList<>();
+        if (consulta.getAgrupar() != null) {
+            for (String nombre : consulta.getAgrupar()) {
+                if (!nombre.isBlank()) {
+                    dimensiones.add(DimensionAnalitica.desde(nombre));
+                }
+            }
+        }
+        if (dimensiones.size() > 2) {
+            throw new IllegalArgumentException("Se puede agrupar por dos dimensiones como máximo");
+        }
+        if (consulta.getDesde() != null && consulta.getHasta() != null && consulta.getDesde().isAfter(consulta.getHasta())) {
+            throw new IllegalArgumentException("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        if (estado != Estado.CARGADO) {
+            // La carga recorre todo el historial: no se hace en el hilo de la consulta
+            iniciarCarga();
+            throw new IllegalStateException("Los datos de análisis se están cargando, reintentar en unos segundos");
+        }
+
+        long inicio = System.nanoTime();
+        ResultadoAnaliticaDTO resultado = new ResultadoAnaliticaDTO();
+        dimensiones.forEach(dimension -> resultado.getDimensiones().add(dimension.name().toLowerCase()));
+        int filas = columnas.getFilas();
+        resultado.setLineasRecorridas(filas);
+
+        Filtro filtro = armarFiltro(consulta);
+        if (filtro != null) {
+            DimensionAnalitica[] agrupar = dimensiones.toArray(new DimensionAnalitica[0]);
+            AcumuladorPorClave acumulado = agrupar(pool, columnas.getBloques(), filas, filtro, agrupar);
+            for (int indice : acumulado.indicesOrdenadosPorClave()) {
+                resultado.getFilas().add(new ResultadoAnaliticaDTO.FilaAnalitica(etiquetas(agrupar, acumulado.clave(indice)),
+                        acumulado.cantidad(indice), BigDecimal.valueOf(acumulado.centavos(indice), 2)));
+            }
+        }
+        resultado.setDuracionMicros((System.nanoTime() - inicio) / 1000);
+        return resultado;
+    }
+
+    // null si algún filtro no puede coincidir con ninguna línea (marca o categoría inexistente)
+    private Filtro armarFiltro(ConsultaAnaliticaDTO consulta) {
+        Filtro filtro = new Filtro();
+        if (consulta.getDesde() != null) {
+            filtro.diaDesde = (int) consulta.getDesde().toEpochDay();
+        }
+        if (consulta.getHasta() != null) {
+            filtro.diaHasta = (int) consulta.getHasta().toEpochDay();
+        }
+        if (consulta.getMarca() != null && !consulta.getMarca().isBlank()) {
+            filtro.marca = marcas.codigo(consulta.getMarca().trim());
+            if (filtro.marca < 0) {
+                return null;
+            }
+        }
+        if (consulta.getCategoria() != null && !consulta.getCategoria().isBlank()) {
+            filtro.categoria = categorias.codigo(consulta.getCategoria().trim());
+            if (filtro.categoria < 0) {
+                return null;
+            }
+        }
+        if (consulta.getInstrumentoId() != null) {
+            filtro.instrumento = consulta.getInstrumentoId();
+        }
+        return filtro;
+    }
+
+    private List<String> etiquetas(DimensionAnalitica[] dimensiones, long clave) {
+        List<String> grupo = new ArrayList<>(dimensiones.length);
+        if (dimensiones.length == 1) {
+            grupo.add(etiqueta(dimensiones[0], (int) clave));
+        } else if (dimensiones.length == 2) {
+            grupo.add(etiqueta(dimensiones[0], (int) (clave >> 32)));
+            grupo.add(etiqueta(dimensiones[1], (int) clave));
+        }
+        return grupo;
+    }
+
+    private String etiqueta(DimensionAnalitica dimension, int valor) {
+        switch (dimension) {
+            case DIA:
+            case SEMANA:
+                return LocalDate.ofEpochDay(valor).toString();
+            case MES:
+                return String.format("%04d-%02d", valor / 12, valor % 12 + 1);
+            case INSTRUMENTO:
+                DatosInstrumento datos = instrumentos.get((long) valor);
+                return datos == null ? "#" + valor : datos.nombre;
+            case MARCA:
+                return marcas.valor(valor);
+            default:
+                return categorias.valor(valor);
+        }
+    }
+
+    /**
+     * Recorre las primeras {@code filas} filas en el pool y devuelve los totales por grupo.
+     * Con una dimensión la clave es su valor; con dos, la primera va en los 32 bits altos.
+     */
+    static AcumuladorPorClave agrupar(ForkJoinPool pool, ColumnasVentas.Bloque[] bloques, int filas, Filtro filtro,
+                                      DimensionAnalitica[] dimensiones) {
+        return pool.invoke(new Escaneo(bloques, 0, filas, filtro, dimensiones));
+    }
+
+    // Filtros ya traducidos a los valores de las columnas (-1 = sin filtro)
+    static class Filtro {
+        int diaDesde = Integer.MIN_VALUE;
+        int diaHasta = Integer.MAX_VALUE;
+        int marca = -1;
+        int categoria = -1;
+        long instrumento = -1;
+    }
+
+    private static class DatosInstrumento {
+        private final String nombre;
+        private final int marca;
+        private final int categoria;
+
+        private DatosInstrumento(String nombre, int marca, int categoria) {
+            this.nombre = nombre;
+            this.marca = marca;
+            this.categoria = categoria;
+        }
+    }
+
+    private static class Escaneo extends RecursiveTask<AcumuladorPorClave> {
+        private final ColumnasVentas.Bloque[] bloques;
+        private final int desde;
+        private final int hasta;
+        private final Filtro filtro;
+        private final DimensionAnalitica[] dimensiones;
+
+        private Escaneo(ColumnasVentas.Bloque[] bloques, int desde, int hasta, Filtro filtro, DimensionAnalitica[] dimensiones) {
+            this.bloques = bloques;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.filtro = filtro;
+            this.dimensiones = dimensiones;
+        }
+
+        @Override
+        protected AcumuladorPorClave compute() {
+            if (hasta - desde <= FILAS_POR_TAREA) {
+                return recorrer();
+            }
+            int medio = (desde + hasta) >>> 1;
+            Escaneo izquierda = new Escaneo(bloques, desde, medio, filtro, dimensiones);
+            izquierda.fork();
+            AcumuladorPorClave derecha = new Escaneo(bloques, medio, hasta, filtro, dimensiones).compute();
+            AcumuladorPorClave resultado = izquierda.join();
+            resultado.combinar(derecha);
+            return resultado;
+        }
+
+        private AcumuladorPorClave recorrer() {
+            AcumuladorPorClave acumulador = new AcumuladorPorClave();
+            DimensionAnalitica primera = dimensiones.length > 0 ? dimensiones[0] : null;
+            DimensionAnalitica segunda = dimensiones.length > 1 ? dimensiones[1] : null;
+            int fila = desde;
+            while (fila < hasta) {
+                ColumnasVentas.Bloque bloque = bloques[fila >>> ColumnasVentas.BITS_BLOQUE];
+                int inicio = fila & ColumnasVentas.MASCARA_BLOQUE;
+                int fin = Math.min(ColumnasVentas.TAMANIO_BLOQUE, inicio + (hasta - fila));
+                for (int i = inicio; i < fin; i++) {
+                    int dia = bloque.dia[i];
+                    if (dia < filtro.diaDesde || dia > filtro.diaHasta
+                            || (filtro.marca >= 0 && bloque.marca[i] != filtro.marca)
+                            || (filtro.categoria >= 0 && bloque.categoria[i] != filtro.categoria)
+                            || (filtro.instrumento >= 0 && bloque.instrumento[i] != filtro.instrumento)) {
+                        continue;
+                    }
+                    long clave = 0;
+                    if (primera != null) {
+                        clave = valor(primera, bloque, i);
+                        if (segunda != null) {
+                            clave = (clave << 32) | (valor(segunda, bloque, i) & 0xFFFFFFFFL);
+                        }
+                    }
+                    int cantidad = bloque.cantidad[i];
+                    acumulador.sumar(clave, null, cantidad, bloque.centavos[i] * cantidad);
+                }
+                fila += fin - inicio;
+            }
+            return acumulador;
+        }
+
+        private static int valor(DimensionAnalitica dimension, ColumnasVentas.Bloque bloque, int i) {
+            switch (dimension) {
+                case DIA:
+                    return bloque.dia[i];
+                case SEMANA:
+                    // El epoch day 0 (1970-01-01) fue jueves: se retrocede hasta el lunes
+                    return bloque.dia[i] - Math.floorMod(bloque.dia[i] + 3, 7);
+                case MES:
+                    return bloque.mes[i];
+                case INSTRUMENTO:
+                    return (int) bloque.instrumento[i];
+                case MARCA:
+                    return bloque.marca[i];
+                default:
+                    return bloque.categoria[i];
+            }
+        }
+    }
+}
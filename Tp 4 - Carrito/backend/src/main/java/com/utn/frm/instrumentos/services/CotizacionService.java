@@ -0,0 +1,66 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.CotizacionDTO;
+import com.utn.frm.instrumentos.dto.PedidoRequestDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CotizacionService.java
+ * Cotiza un carrito (precios, envío y total) sin guardar nada.
+ * Todo sale de la tabla de precios en memoria: salvo cuando la tabla se acaba de invalidar,
+ * una cotización no consulta la base.
+ */
+@Service
+public class CotizacionService {
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private TablaPreciosService tablaPrecios;
+
+    /**
+     * @throws RuntimeException si el carrito no es válido o tiene instrumentos inexistentes (informa todos juntos).
+     */
+    public CotizacionDTO cotizar(PedidoRequestDTO carrito) {
+        // Mismas reglas que el alta del pedido: líneas repetidas se unen
+        Map<Long, Integer> cantidadesPorInstrumento = pedidoService.agruparCantidades(carrito);
+        Map<Long, TablaPreciosService.PrecioInstrumento> tabla = tablaPrecios.tabla();
+
+        List<Long> noEncontrados = new ArrayList<>();
+        CotizacionDTO cotizacion = new CotizacionDTO();
+        BigDecimal subtotal = BigDecimal.ZERO;
+        BigDecimal envio = BigDecimal.ZERO;
+        for (Map.Entry<Long, Integer> entrada : cantidadesPorInstrumento.entrySet()) {
+            TablaPreciosService.PrecioInstrumento precio = tabla.get(entrada.getKey());
+            if (precio == null) {
+                noEncontrados.add(entrada.getKey());
+                continue;
+            }
+            CotizacionDTO.LineaCotizacionDTO linea = new CotizacionDTO.LineaCotizacionDTO();
+            linea.setInstrumentoId(precio.getId());
+            linea.setInstrumento(precio.getInstrumento());
+            linea.setCantidad(entrada.getValue());
+            linea.setPrecioUnitario(precio.getPrecio());
+            linea.setSubtotal(precio.getPrecio().multiply(BigDecimal.valueOf(entrada.getValue())));
+            linea.setCostoEnvio(precio.getCostoEnvio());
+            cotizacion.getLineas().add(linea);
+
+            subtotal = subtotal.add(linea.getSubtotal());
+            envio = envio.add(precio.getCostoEnvio());
+        }
+        if (!noEncontrados.isEmpty()) {
+            throw new RuntimeException("Instrumentos no encontrados: " + noEncontrados);
+        }
+        cotizacion.setSubtotal(subtotal);
+        cotizacion.setEnvio(envio);
+        cotizacion.setTotal(subtotal.add(envio));
+        return cotizacion;
+    }
+}
@@ -0,0 +1,19 @@
+package com.utn.frm.instrumentos.services;
+
+/**
+ * DimensionAnalitica.java
+ * Dimensiones por las que se pueden agrupar las consultas de análisis de ventas.
+ * Las semanas empiezan el lunes y se identifican por la fecha de ese lunes.
+ */
+public enum DimensionAnalitica {
+    DIA, SEMANA, MES, INSTRUMENTO, MARCA, CATEGORIA;
+
+    public static DimensionAnalitica desde(String nombre) {
+        try {
+            return valueOf(nombre.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Dimensión no soportada: " + nombre
+                    + " (usar dia, semana, mes, instrumento, marca o categoria)");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.FilaReportePedidoDTO;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * EscritorReporte.java
+ * Escribe el reporte de pedidos fila por fila en un stream, en un formato concreto.
+ * Uso: escribirCabecera(), escribirFila() por cada fila, finalizar() y siempre close().
+ */
+public interface EscritorReporte extends Closeable {
+
+    String[] COLUMNAS = {"Fecha Pedido", "Instrumento", "Marca", "Modelo", "Cantidad", "Precio Unitario", "Subtotal"};
+
+    void escribirCabecera() throws IOException;
+
+    void escribirFila(FilaReportePedidoDTO fila) throws IOException;
+
+    // Completa el documento y vacía los buffers en el stream de salida (no lo cierra)
+    void finalizar() throws IOException;
+
+    // Libera recursos propios del escritor (archivos temporales, etc.)
+    @Override
+    default void close() throws IOException {
+    }
+
+    static EscritorReporte crear(FormatoReporte formato, OutputStream out, int ventanaFilasExcel) {
+        switch (formato) {
+            case CSV:
+                return new EscritorReporteCsv(out);
+            case NDJSON:
+                return new EscritorReporteNdjson(out);
+            default:
+                return new EscritorReporteExcel(out, ventanaFilasExcel);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.FilaReportePedidoDTO;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * EscritorReporteCsv.java
+ * Reporte en CSV (RFC 4180, UTF-8). Cada fila se escribe apenas se lee, sin armar ningún documento en memoria.
+ * Los importes se escriben con el valor decimal exacto de la base de datos.
+ */
+public class EscritorReporteCsv implements EscritorReporte {
+
+    private final Writer writer;
+
+    public EscritorReporteCsv(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    @Override
+    public void escribirCabecera() throws IOException {
+        for (int i = 0; i < COLUMNAS.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            escribirTexto(COLUMNAS[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void escribirFila(FilaReportePedidoDTO fila) throws IOException {
+        writer.write(fila.getFecha().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        writer.write(',');
+        escribirTexto(fila.getInstrumento());
+        writer.write(',');
+        escribirTexto(fila.getMarca());
+        writer.write(',');
+        escribirTexto(fila.getModelo());
+        writer.write(',');
+        writer.write(String.valueOf(fila.getCantidad()));
+        writer.write(',');
+        writer.write(fila.getPrecioUnitario().toPlainString());
+        writer.write(',');
+        writer.write(fila.getSubtotal().toPlainString());
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void finalizar() throws IOException {
+        writer.flush();
+    }
+
+    // Entre comillas solo si hace falta (separador, comillas o saltos de línea)
+    private void escribirTexto(String valor) throws IOException {
+        if (valor == null) {
+            return;
+        }
+        boolean requiereComillas = false;
+        for (int i = 0; i < valor.length() && !requiereComillas; i++) {
+            char c = valor.charAt(i);
+            requiereComillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!requiereComillas) {
+            writer.write(valor);
+            return;
+        }
+        writer.write('"');
+        writer.write(valor.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
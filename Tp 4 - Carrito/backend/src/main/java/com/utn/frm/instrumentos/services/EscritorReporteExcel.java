@@ -0,0 +1,75 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.FilaReportePedidoDTO;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * EscritorReporteExcel.java
+ * Reporte en .xlsx con un libro SXSSF con ventana de filas: solo las últimas {@code ventanaFilas}
+ * quedan en memoria y el resto se vuelca a archivos temporales comprimidos, por lo que el uso
+ * de heap no depende de la cantidad de filas.
+ * Al finalizar agrega las hojas de resumen, acumuladas mientras se escribían las filas.
+ */
+public class EscritorReporteExcel implements EscritorReporte {
+
+    private final OutputStream out;
+    private final SXSSFWorkbook workbook;
+    private final ResumenReporte resumen = new ResumenReporte();
+    private Sheet sheet;
+    private int rowNum;
+
+    public EscritorReporteExcel(OutputStream out, int ventanaFilas) {
+        this.out = out;
+        this.workbook = new SXSSFWorkbook(ventanaFilas);
+        this.workbook.setCompressTempFiles(true);
+    }
+
+    @Override
+    public void escribirCabecera() {
+        sheet = workbook.createSheet("Reporte Pedidos");
+        escribirCabecera(sheet.createRow(rowNum++));
+    }
+
+    @Override
+    public void escribirFila(FilaReportePedidoDTO fila) {
+        escribirFila(sheet.createRow(rowNum++), fila);
+        resumen.acumular(fila);
+    }
+
+    // Formato de las filas, compartido con los reportes que arman varias hojas en un mismo libro
+    static void escribirCabecera(Row headerRow) {
+        for (int i = 0; i < COLUMNAS.length; i++) {
+            headerRow.createCell(i).setCellValue(COLUMNAS[i]);
+        }
+    }
+
+    static void escribirFila(Row row, FilaReportePedidoDTO fila) {
+        row.createCell(0).setCellValue(fila.getFecha().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        row.createCell(1).setCellValue(fila.getInstrumento());
+        row.createCell(2).setCellValue(fila.getMarca());
+        row.createCell(3).setCellValue(fila.getModelo());
+        row.createCell(4).setCellValue(fila.getCantidad());
+        row.createCell(5).setCellValue(fila.getPrecioUnitario().doubleValue());
+        row.createCell(6).setCellValue(fila.getSubtotal().doubleValue());
+    }
+
+    @Override
+    public void finalizar() throws IOException {
+        resumen.escribirHojas(workbook);
+        workbook.write(out);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Borra los archivos temporales de las hojas ya volcadas a disco
+        workbook.dispose();
+        workbook.close();
+    }
+}
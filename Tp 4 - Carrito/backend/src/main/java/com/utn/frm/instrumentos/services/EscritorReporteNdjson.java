@@ -0,0 +1,68 @@
+package com.utn.frm.instrumentos.services;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.utn.frm.instrumentos.dto.FilaReportePedidoDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * EscritorReporteNdjson.java
+ * Reporte en JSON delimitado por saltos de línea: un objeto por fila, con las mismas columnas que el Excel.
+ * No tiene cabecera; los nombres de las columnas son las claves de cada objeto.
+ */
+public class EscritorReporteNdjson implements EscritorReporte {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonGenerator generator;
+    private boolean conFilas;
+
+    public EscritorReporteNdjson(OutputStream out) {
+        try {
+            this.generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generator.setRootValueSeparator(new SerializedString("\n"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void escribirCabecera() {
+        // NDJSON no lleva cabecera
+    }
+
+    @Override
+    public void escribirFila(FilaReportePedidoDTO fila) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("fechaPedido", fila.getFecha().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        generator.writeStringField("instrumento", fila.getInstrumento());
+        generator.writeStringField("marca", fila.getMarca());
+        generator.writeStringField("modelo", fila.getModelo());
+        generator.writeNumberField("cantidad", fila.getCantidad());
+        generator.writeNumberField("precioUnitario", fila.getPrecioUnitario());
+        generator.writeNumberField("subtotal", fila.getSubtotal());
+        generator.writeEndObject();
+        conFilas = true;
+    }
+
+    @Override
+    public void finalizar() throws IOException {
+        // El separador se escribe antes de cada objeto salvo el primero; se agrega el salto final
+        if (conFilas) {
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,217 @@
+package com.utn.frm.instrumentos.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.utn.frm.instrumentos.dto.DetallePedidoResponseDTO;
+import com.utn.frm.instrumentos.dto.PedidoCreadoDeltaDTO;
+import com.utn.frm.instrumentos.dto.PedidoResponseDTO;
+import com.utn.frm.instrumentos.events.PedidoCreadoEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EventosPedidosService.java
+ * Pedidos creados en vivo para los paneles abiertos (Server-Sent Events).
+ * - Al confirmarse un pedido (AFTER_COMMIT) se arma su delta solo con los datos del evento (sin consultar la
+ *   base: corre en el hilo que creó el pedido) y se serializa una sola vez para todos.
+ * - Cada suscriptor tiene un buffer acotado y un hilo propio que le escribe, así un cliente lento no frena
+ *   a los demás ni a la transacción que creó el pedido (publicar solo hace offer en los buffers).
+ * - Si el buffer de un cliente se llena se lo desconecta: el EventSource del navegador se reconecta solo
+ *   y el panel vuelve a leer los datos completos.
+ * - Periódicamente se manda un latido (comentario SSE) para que los proxies no corten la conexión y para
+ *   detectar clientes que se fueron sin cerrar.
+ */
+@Service
+public class EventosPedidosService {
+
+    private static final Logger log = LoggerFactory.getLogger(EventosPedidosService.class);
+
+    public static final String EVENTO_PEDIDO_CREADO = "pedido-creado";
+
+    // Marca en el buffer para el latido; los eventos de pedidos son instancias de Mensaje
+    private static final Object LATIDO = new Object();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Eventos que puede tener pendientes un cliente antes de que se lo desconecte
+    @Value("${app.pedidos.eventos.buffer-por-cliente:64}")
+    private int bufferPorCliente;
+
+    // Conexiones abiertas como máximo (cada una usa un hilo mientras dura)
+    @Value("${app.pedidos.eventos.suscriptores-maximos:50}")
+    private int suscriptoresMaximos;
+
+    // Duración de cada conexión; al vencer, el navegador se reconecta
+    @Value("${app.pedidos.eventos.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final AtomicLong descartados = new AtomicLong();
+
+    /**
+     * Registra un nuevo cliente.
+     * @throws IllegalStateException si ya hay suscriptoresMaximos conexiones abiertas.
+     */
+    public synchronized SseEmitter suscribir() {
+        if (suscriptores.size() >= suscriptoresMaximos) {
+            throw new IllegalStateException("Se alcanzó el máximo de " + suscriptoresMaximos + " conexiones de eventos.");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Suscriptor suscriptor = new Suscriptor(emitter, new ArrayBlockingQueue<>(bufferPorCliente));
+        emitter.onCompletion(() -> quitar(suscriptor));
+        emitter.onTimeout(() -> quitar(suscriptor));
+        emitter.onError(e -> quitar(suscriptor));
+        suscriptores.add(suscriptor);
+        suscriptor.iniciar();
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPedidoCreado(PedidoCreadoEvent evento) {
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+        PedidoCreadoDeltaDTO delta = armarDelta(evento.getPedido());
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            log.warn("No se pudo serializar el evento del pedido {}: {}", evento.getPedido().getId(), e.getMessage());
+            return;
+        }
+        publicar(new Mensaje(String.valueOf(evento.getPedido().getId()), json));
+    }
+
+    @Scheduled(fixedDelayString = "${app.pedidos.eventos.latido-ms:25000}")
+    public void latir() {
+        if (!suscriptores.isEmpty()) {
+            publicar(LATIDO);
+        }
+    }
+
+    public int getSuscriptores() {
+        return suscriptores.size();
+    }
+
+    // Clientes desconectados por no leer a tiempo desde que arrancó la aplicación
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Suscriptor suscriptor : suscriptores) {
+            quitar(suscriptor);
+        }
+    }
+
+    private PedidoCreadoDeltaDTO armarDelta(PedidoResponseDTO pedido) {
+        Map<String, Long> unidadesPorInstrumento = new LinkedHashMap<>();
+        if (pedido.getDetalles() != null) {
+            for (DetallePedidoResponseDTO detalle : pedido.getDetalles()) {
+                unidadesPorInstrumento.merge(detalle.getInstrumento().getInstrumento(), (long) detalle.getCantidad(), Long::sum);
+            }
+        }
+        List<String> instrumentos = new ArrayList<>(unidadesPorInstrumento.keySet());
+        long[] unidades = unidadesPorInstrumento.values().stream().mapToLong(Long::longValue).toArray();
+
+        PedidoCreadoDeltaDTO delta = new PedidoCreadoDeltaDTO();
+        delta.setPedido(pedido);
+        delta.setDia(pedido.getFecha().withZoneSameInstant(AnaliticaVentasService.ZONA).toLocalDate().toString());
+        delta.setMes(RollupPedidosService.mesDe(pedido.getFecha()));
+        delta.setInstrumentos(instrumentos);
+        delta.setUnidades(unidades);
+        return delta;
+    }
+
+    private void publicar(Object mensaje) {
+        for (Suscriptor suscriptor : suscriptores) {
+            if (!suscriptor.pendientes.offer(mensaje)) {
+                descartados.incrementAndGet();
+                log.info("Cliente de eventos de pedidos desconectado: no leyó {} eventos pendientes", bufferPorCliente);
+                quitar(suscriptor);
+            }
+        }
+    }
+
+    // Solo lo saca de la lista y avisa a su hilo: cerrar la conexión puede bloquear si hay una escritura en curso
+    private void quitar(Suscriptor suscriptor) {
+        if (suscriptores.remove(suscriptor)) {
+            suscriptor.detener();
+        }
+    }
+
+    private static final class Mensaje {
+        private final String id;
+        private final String json;
+
+        private Mensaje(String id, String json) {
+            this.id = id;
+            this.json = json;
+        }
+    }
+
+    private final class Suscriptor {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Object> pendientes;
+        private volatile boolean activo = true;
+        private Thread hilo;
+
+        private Suscriptor(SseEmitter emitter, BlockingQueue<Object> pendientes) {
+            this.emitter = emitter;
+            this.pendientes = pendientes;
+        }
+
+        private void iniciar() {
+            hilo = new Thread(this::enviar, "eventos-pedidos");
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+
+        private void detener() {
+            activo = false;
+            hilo.interrupt();
+        }
+
+        private void enviar() {
+            try {
+                while (activo) {
+                    Object mensaje = pendientes.take();
+                    if (mensaje == LATIDO) {
+                        emitter.send(SseEmitter.event().comment("latido"));
+                    } else {
+                        Mensaje evento = (Mensaje) mensaje;
+                        emitter.send(SseEmitter.event().id(evento.id).name(EVENTO_PEDIDO_CREADO).data(evento.json));
+                    }
+                }
+                // Lo quitó publicar() o el apagado: se cierra la respuesta y el navegador se reconecta
+                emitter.complete();
+            } catch (InterruptedException e) {
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // El cliente cerró la conexión o el emitter ya terminó; el contenedor avisa el error al emitter
+                quitar(this);
+            }
+        }
+    }
+}
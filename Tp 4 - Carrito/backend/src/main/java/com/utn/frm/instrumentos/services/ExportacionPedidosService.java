@@ -0,0 +1,64 @@
+package com.utn.frm.instrumentos.services;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * ExportacionPedidosService.java
+ * Exportación del historial completo de pedidos en NDJSON (un PedidoResponseDTO por línea).
+ * Los pedidos se leen con cursor y se escriben uno por uno en el stream con un JsonGenerator,
+ * así la memoria usada no depende de la cantidad de pedidos. Se usa el ObjectMapper de Spring
+ * para que cada línea tenga el mismo formato que GET /api/pedidos.
+ */
+@Service
+public class ExportacionPedidosService {
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Cada cuántos pedidos se vacía el buffer hacia el cliente
+    @Value("${app.pedidos.exportacion.flush-cada:200}")
+    private int flushCada;
+
+    /**
+     * Escribe los pedidos con id mayor a {@code afterId} en orden de id. Cada línea se escribe completa
+     * antes de vaciar el buffer: si la transferencia se corta, el cliente retoma con el id de la última
+     * línea completa que recibió.
+     * @return cantidad de pedidos escritos.
+     */
+    public long exportarNdjson(long afterId, OutputStream outputStream) throws IOException {
+        long[] escritos = {0};
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            try {
+                pedidoService.recorrerPedidosDesdeId(afterId, pedido -> {
+                    try {
+                        generator.writeObject(pedidoService.convertirAResponseDTO(pedido));
+                        generator.writeRaw('\n');
+                        if (++escritos[0] % flushCada == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.flush();
+        }
+        return escritos[0];
+    }
+}
@@ -0,0 +1,67 @@
+package com.utn.frm.instrumentos.services;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * FormatoReporte.java
+ * Formatos en los que se puede exportar el reporte de pedidos.
+ * Todos tienen las mismas columnas y el mismo orden de filas que la hoja de Excel.
+ */
+public enum FormatoReporte {
+    XLSX("xlsx", MediaType.APPLICATION_OCTET_STREAM),
+    CSV("csv", new MediaType("text", "csv")),
+    NDJSON("ndjson", MediaType.APPLICATION_NDJSON);
+
+    private final String extension;
+    private final MediaType mediaType;
+
+    FormatoReporte(String extension, MediaType mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    public String getExtension() { return extension; }
+    public MediaType getMediaType() { return mediaType; }
+
+    /**
+     * Elige el formato: el parámetro explícito tiene prioridad; si no viene, se negocia con
+     * la cabecera Accept (por calidad q y, a igual calidad, el tipo más específico primero)
+     * y, si ninguno coincide, se usa Excel.
+     * @throws IllegalArgumentException si el parámetro no corresponde a ningún formato.
+     */
+    public static FormatoReporte resolver(String formato, String accept) {
+        if (formato != null && !formato.isBlank()) {
+            for (FormatoReporte f : values()) {
+                if (f.extension.equalsIgnoreCase(formato.trim())) {
+                    return f;
+                }
+            }
+            throw new IllegalArgumentException("Formato de reporte no soportado: " + formato);
+        }
+        if (accept != null && !accept.isBlank()) {
+            List<MediaType> aceptados = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(aceptados);
+            // sortBySpecificity no mira q; el orden es estable, así que a igual calidad se mantiene la especificidad
+            aceptados.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+            for (MediaType aceptado : aceptados) {
+                if (aceptado.getQualityValue() == 0) {
+                    break; // q=0: el cliente no lo acepta, ni a los que siguen
+                }
+                if (aceptado.isWildcardType()) {
+                    break;
+                }
+                if (aceptado.isCompatibleWith(CSV.mediaType)) {
+                    return CSV;
+                }
+                if (aceptado.isCompatibleWith(NDJSON.mediaType)) {
+                    return NDJSON;
+                }
+            }
+        }
+        return XLSX;
+    }
+}
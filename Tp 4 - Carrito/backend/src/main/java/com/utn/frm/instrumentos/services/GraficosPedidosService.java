@@ -0,0 +1,158 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.DistribucionGraficoDTO;
+import com.utn.frm.instrumentos.dto.SerieGraficoDTO;
+import com.utn.frm.instrumentos.repositories.PedidoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * GraficosPedidosService.java
+ * Datos de los gráficos del panel de pedidos, con rango de fechas opcional (desde y hasta inclusive).
+ * - Pedidos por período: por mes sobre meses completos (o sin rango) sale del rollup mensual; por día o
+ *   semana, o con meses partidos, se cuentan los pedidos por hora en la base filtrando fecha por rango
+ *   y se agrupan acá en días, semanas o meses.
+ * - Cantidades por instrumento: sin rango sale del agregado en memoria; con rango, de la base.
+ * Los días se cuentan en la hora de Argentina (AnaliticaVentasService.ZONA), igual que el rollup mensual y la analítica.
+ */
+@Service
+public class GraficosPedidosService {
+
+    // Extremos usados cuando el rango queda abierto de un lado; mantienen la consulta como comparación de rango
+    private static final LocalDate PRIMER_DIA = LocalDate.of(1970, 1, 1);
+    private static final LocalDate ULTIMO_DIA = LocalDate.of(9999, 1, 1);
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private RollupPedidosService rollupPedidosService;
+
+    @Autowired
+    private AgregadoVentasService agregadoVentasService;
+
+    // Tope de períodos (barras) de una serie, para que un rango largo por día no genere respuestas enormes
+    @Value("${app.pedidos.graficos.periodos-maximos:1000}")
+    private int periodosMaximos;
+
+    /**
+     * Cantidad de pedidos por período. El eje es continuo: los períodos sin pedidos entre el primero y el
+     * último (o entre desde y hasta, si se indicaron) van con 0.
+     */
+    public SerieGraficoDTO pedidosPorPeriodo(LocalDate desde, LocalDate hasta, GranularidadGrafico granularidad) {
+        validarRango(desde, hasta);
+        LocalDate primero = desde == null ? null : granularidad.inicioDelPeriodo(desde);
+        LocalDate ultimo = hasta == null ? null : granularidad.inicioDelPeriodo(hasta);
+        if (primero != null && ultimo != null) {
+            validarPeriodos(granularidad, primero, ultimo);
+        }
+
+        // Cantidad por inicio de período
+        TreeMap<LocalDate, Long> porPeriodo = new TreeMap<>();
+        if (granularidad == GranularidadGrafico.MES && mesesCompletos(desde, hasta)) {
+            List<Object[]> filas = rollupPedidosService.contadorPedidosPorMes(
+                    desde == null ? null : YearMonth.from(desde), hasta == null ? null : YearMonth.from(hasta));
+            for (Object[] fila : filas) {
+                porPeriodo.merge(YearMonth.parse((String) fila[0]).atDay(1), ((Number) fila[1]).longValue(), Long::sum);
+            }
+        } else {
+            if (primero == null || ultimo == null) {
+                // Con un extremo abierto se busca primero dónde empiezan o terminan los pedidos, para rechazar
+                // un rango con demasiados períodos antes de contar por hora todo el historial
+                Object[] extremos = pedidoRepository.extremosFechaEntre(inicio(desde), fin(hasta)).get(0);
+                if (extremos[0] == null) {
+                    return serieVacia(granularidad, desde, hasta);
+                }
+                primero = primero == null ? granularidad.inicioDelPeriodo(diaLocal((ZonedDateTime) extremos[0])) : primero;
+                ultimo = ultimo == null ? granularidad.inicioDelPeriodo(diaLocal((ZonedDateTime) extremos[1])) : ultimo;
+                validarPeriodos(granularidad, primero, ultimo);
+            }
+            for (Object[] fila : pedidoRepository.contadorPedidosPorHora(inicio(desde), fin(hasta))) {
+                LocalDate dia = diaLocal(RollupPedidosService.horaUtc(fila).atZone(ZoneOffset.UTC));
+                porPeriodo.merge(granularidad.inicioDelPeriodo(dia), ((Number) fila[4]).longValue(), Long::sum);
+            }
+        }
+
+        if (porPeriodo.isEmpty() && (primero == null || ultimo == null)) {
+            return serieVacia(granularidad, desde, hasta);
+        }
+        // Solo queda abierto en el rollup mensual, que tiene pocos períodos
+        if (primero == null || ultimo == null) {
+            primero = primero == null ? porPeriodo.firstKey() : primero;
+            ultimo = ultimo == null ? porPeriodo.lastKey() : ultimo;
+            validarPeriodos(granularidad, primero, ultimo);
+        }
+
+        int periodos = (int) granularidad.periodosEntre(primero, ultimo);
+        List<String> etiquetas = new ArrayList<>(periodos);
+        long[] valores = new long[periodos];
+        LocalDate periodo = primero;
+        for (int i = 0; i < periodos; i++) {
+            etiquetas.add(granularidad.etiqueta(periodo));
+            valores[i] = porPeriodo.getOrDefault(periodo, 0L);
+            periodo = granularidad.siguiente(periodo);
+        }
+        return new SerieGraficoDTO(granularidad.getCodigo(), desde, hasta, etiquetas, valores);
+    }
+
+    // Unidades vendidas por instrumento (agrupadas por nombre), de mayor a menor
+    public DistribucionGraficoDTO cantidadesPorInstrumento(LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        List<Object[]> filas = desde == null && hasta == null
+                ? agregadoVentasService.cantidadesPorInstrumento()
+                : pedidoRepository.cantidadesPorInstrumentoEntre(inicio(desde), fin(hasta));
+        List<String> etiquetas = new ArrayList<>(filas.size());
+        long[] valores = new long[filas.size()];
+        for (int i = 0; i < filas.size(); i++) {
+            etiquetas.add((String) filas.get(i)[0]);
+            valores[i] = ((Number) filas.get(i)[1]).longValue();
+        }
+        return new DistribucionGraficoDTO(desde, hasta, etiquetas, valores);
+    }
+
+    private void validarRango(LocalDate desde, LocalDate hasta) {
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha desde (" + desde + ") es posterior a hasta (" + hasta + ").");
+        }
+    }
+
+    private void validarPeriodos(GranularidadGrafico granularidad, LocalDate primero, LocalDate ultimo) {
+        long periodos = granularidad.periodosEntre(primero, ultimo);
+        if (periodos > periodosMaximos) {
+            throw new IllegalArgumentException("El rango abarca " + periodos + " períodos (" + granularidad.getCodigo()
+                    + "); el máximo es " + periodosMaximos + ". Acotar las fechas o usar una granularidad mayor.");
+        }
+    }
+
+    private static SerieGraficoDTO serieVacia(GranularidadGrafico granularidad, LocalDate desde, LocalDate hasta) {
+        return new SerieGraficoDTO(granularidad.getCodigo(), desde, hasta, List.of(), new long[0]);
+    }
+
+    private static LocalDate diaLocal(ZonedDateTime fecha) {
+        return fecha.withZoneSameInstant(AnaliticaVentasService.ZONA).toLocalDate();
+    }
+
+    // El rollup solo sirve si el rango empieza el primer día de un mes y termina el último de otro
+    private static boolean mesesCompletos(LocalDate desde, LocalDate hasta) {
+        return (desde == null || desde.getDayOfMonth() == 1)
+                && (hasta == null || hasta.equals(YearMonth.from(hasta).atEndOfMonth()));
+    }
+
+    private static ZonedDateTime inicio(LocalDate desde) {
+        return (desde == null ? PRIMER_DIA : desde).atStartOfDay(AnaliticaVentasService.ZONA);
+    }
+
+    // Exclusivo: el comienzo del día siguiente a hasta
+    private static ZonedDateTime fin(LocalDate hasta) {
+        return (hasta == null ? ULTIMO_DIA : hasta.plusDays(1)).atStartOfDay(AnaliticaVentasService.ZONA);
+    }
+}
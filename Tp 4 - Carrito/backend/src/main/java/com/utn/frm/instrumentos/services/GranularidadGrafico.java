@@ -0,0 +1,66 @@
+package com.utn.frm.instrumentos.services;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * GranularidadGrafico.java
+ * Períodos en los que se agrupan las series de los gráficos. Cada período se identifica por su primer día;
+ * las semanas empiezan el lunes.
+ */
+public enum GranularidadGrafico {
+    DIA("day", ChronoUnit.DAYS),
+    SEMANA("week", ChronoUnit.WEEKS),
+    MES("month", ChronoUnit.MONTHS);
+
+    private final String codigo;
+    private final ChronoUnit unidad;
+
+    GranularidadGrafico(String codigo, ChronoUnit unidad) {
+        this.codigo = codigo;
+        this.unidad = unidad;
+    }
+
+    // Acepta el código del parámetro (day, week, month) o el nombre en castellano
+    public static GranularidadGrafico desde(String nombre) {
+        String valor = nombre.trim();
+        for (GranularidadGrafico granularidad : values()) {
+            if (granularidad.codigo.equalsIgnoreCase(valor) || granularidad.name().equalsIgnoreCase(valor)) {
+                return granularidad;
+            }
+        }
+        throw new IllegalArgumentException("Granularidad no soportada: " + nombre + " (usar day, week o month)");
+    }
+
+    public LocalDate inicioDelPeriodo(LocalDate dia) {
+        switch (this) {
+            case SEMANA:
+                return dia.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MES:
+                return dia.withDayOfMonth(1);
+            default:
+                return dia;
+        }
+    }
+
+    public LocalDate siguiente(LocalDate inicioPeriodo) {
+        return inicioPeriodo.plus(1, unidad);
+    }
+
+    // Períodos entre los inicios de dos períodos, contando ambos
+    public long periodosEntre(LocalDate primero, LocalDate ultimo) {
+        return unidad.between(primero, ultimo) + 1;
+    }
+
+    // Día (yyyy-MM-dd), lunes de la semana (yyyy-MM-dd) o mes (yyyy-MM)
+    public String etiqueta(LocalDate inicioPeriodo) {
+        return this == MES ? YearMonth.from(inicioPeriodo).toString() : inicioPeriodo.toString();
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+}
@@ -0,0 +1,526 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.ResultadoImportacionDTO;
+import com.utn.frm.instrumentos.entities.Categoria;
+import com.utn.frm.instrumentos.repositories.CategoriaRepository;
+import com.utn.frm.instrumentos.util.LectorCsv;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * ImportacionInstrumentosService.java
+ * Importación masiva del catálogo de instrumentos desde .xlsx o .csv.
+ * - El .xlsx se lee con el modelo de eventos (SAX) de POI, fila por fila, sin armar el libro en memoria.
+ * - Las categorías se resuelven contra un mapa cargado una sola vez (por id o por denominación).
+ * - Las filas válidas se insertan por lotes con JDBC batch, una transacción por lote. Las filas con id
+ *   hacen upsert (INSERT ... ON DUPLICATE KEY UPDATE), las filas sin id se insertan como nuevas.
+ * - Como en la edición del administrador, la cantidad vendida del archivo es el total a mostrar: a una fila
+ *   existente se le suma la diferencia contra su valor actual (base + pendiente de volcar), así no se pierden
+ *   ventas en curso (ver VentasInstrumentoService.corregir). Si la celda está vacía no se modifica.
+ * Los errores se informan por número de fila y no cortan la importación.
+ */
+@Service
+public class ImportacionInstrumentosService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionInstrumentosService.class);
+
+    private static final String SQL_INSERT =
+            "INSERT INTO instrumentos (instrumento, marca, modelo, imagen, precio, costo_envio, cantidad_vendida, descripcion, categoria_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_UPSERT =
+            "INSERT INTO instrumentos (id, instrumento, marca, modelo, imagen, precio, costo_envio, cantidad_vendida, descripcion, categoria_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE instrumento = VALUES(instrumento), marca = VALUES(marca), modelo = VALUES(modelo), " +
+            "imagen = VALUES(imagen), precio = VALUES(precio), costo_envio = VALUES(costo_envio), " +
+            "descripcion = VALUES(descripcion), categoria_id = VALUES(categoria_id)";
+
+    // Columnas reconocidas en la cabecera (normalizadas: minúsculas, sin tildes ni separadores)
+    private static final String COL_ID = "id";
+    private static final String COL_INSTRUMENTO = "instrumento";
+    private static final String COL_MARCA = "marca";
+    private static final String COL_MODELO = "modelo";
+    private static final String COL_IMAGEN = "imagen";
+    private static final String COL_PRECIO = "precio";
+    private static final String COL_COSTO_ENVIO = "costoenvio";
+    private static final String COL_CANTIDAD_VENDIDA = "cantidadvendida";
+    private static final String COL_DESCRIPCION = "descripcion";
+    private static final String COL_CATEGORIA = "categoria";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private TablaPreciosService tablaPrecios;
+
+    @Autowired
+    private VentasInstrumentoService ventas;
+
+    @Value("${app.importacion.tamanio-lote:1000}")
+    private int tamanioLote;
+
+    @Value("${app.importacion.max-errores:1000}")
+    private int maxErroresInformados;
+
+    public ResultadoImportacionDTO importar(MultipartFile archivo) throws IOException {
+        String nombre = archivo.getOriginalFilename() == null ? "" : archivo.getOriginalFilename().toLowerCase(Locale.ROOT);
+        if (!nombre.endsWith(".xlsx") && !nombre.endsWith(".csv")) {
+            throw new IllegalArgumentException("Formato no soportado: se espera un archivo .xlsx o .csv");
+        }
+        // POI necesita acceso aleatorio al paquete .xlsx: se copia a disco en vez de leerlo a memoria
+        Path temporal = Files.createTempFile("importacion-instrumentos-", nombre.endsWith(".xlsx") ? ".xlsx" : ".csv");
+        try {
+            archivo.transferTo(temporal);
+            return nombre.endsWith(".xlsx") ? importarXlsx(temporal) : importarCsv(temporal);
+        } finally {
+            // Aunque falle a mitad, los lotes ya confirmados pudieron cambiar precios
+            tablaPrecios.invalidar();
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    public ResultadoImportacionDTO importarXlsx(Path archivo) throws IOException {
+        Importacion importacion = new Importacion();
+        try (OPCPackage paquete = OPCPackage.open(archivo.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(paquete);
+            XSSFReader.SheetIterator hojas = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!hojas.hasNext()) {
+                throw new IllegalArgumentException("El archivo no tiene hojas");
+            }
+            try (InputStream hoja = hojas.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        reader.getStylesTable(), new ReadOnlySharedStringsTable(paquete),
+                        new ManejadorFilas(importacion), new FormateadorValoresCrudos(), false));
+                parser.parse(new InputSource(hoja));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IllegalArgumentException("El archivo no es un .xlsx válido: " + e.getMessage(), e);
+        }
+        return importacion.finalizar();
+    }
+
+    public ResultadoImportacionDTO importarCsv(Path archivo) throws IOException {
+        Importacion importacion = new Importacion();
+        try (BufferedReader reader = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            reader.mark(1);
+            if (reader.read() != '\uFEFF') { // BOM que agrega Excel al guardar como CSV UTF-8
+                reader.reset();
+            }
+            reader.mark(8192);
+            String primeraLinea = reader.readLine();
+            reader.reset();
+            char separador = primeraLinea != null && contar(primeraLinea, ';') > contar(primeraLinea, ',') ? ';' : ',';
+
+            LectorCsv csv = new LectorCsv(reader, separador);
+            String[] registro;
+            while ((registro = csv.leer()) != null) {
+                importacion.procesarFila(csv.getNumeroRegistro(), registro);
+            }
+        }
+        return importacion.finalizar();
+    }
+
+    private static int contar(String texto, char c) {
+        int n = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) == c) n++;
+        }
+        return n;
+    }
+
+    private static String normalizarCabecera(String valor) {
+        String sinTildes = Normalizer.normalize(valor.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sinTildes.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    /**
+     * Estado de una importación: mapeo de la cabecera, categorías, lote pendiente y contadores.
+     */
+    private class Importacion {
+        private final long inicio = System.nanoTime();
+        private final ResultadoImportacionDTO resultado = new ResultadoImportacionDTO();
+        private final Map<Long, Long> categoriasPorId = new HashMap<>();
+        private final Map<String, Long> categoriasPorDenominacion = new HashMap<>();
+        private final List<FilaInstrumento> loteInsert = new ArrayList<>();
+        private final List<FilaInstrumento> loteUpsert = new ArrayList<>();
+        private Map<String, Integer> columnas;
+
+        Importacion() {
+            for (Categoria categoria : categoriaRepository.findAll()) {
+                categoriasPorId.put(categoria.getId(), categoria.getId());
+                categoriasPorDenominacion.put(categoria.getDenominacion().trim().toLowerCase(Locale.ROOT), categoria.getId());
+            }
+        }
+
+        void procesarFila(long numeroFila, String[] valores) {
+            if (columnas == null) {
+                leerCabecera(valores);
+                return;
+            }
+            if (esVacia(valores)) {
+                return;
+            }
+            resultado.setFilasLeidas(resultado.getFilasLeidas() + 1);
+            try {
+                FilaInstrumento fila = convertir(numeroFila, valores);
+                if (fila.id == null) {
+                    loteInsert.add(fila);
+                } else {
+                    loteUpsert.add(fila);
+                }
+                if (loteInsert.size() + loteUpsert.size() >= tamanioLote) {
+                    escribirLote();
+                }
+            } catch (IllegalArgumentException e) {
+                registrarError(numeroFila, e.getMessage());
+            }
+        }
+
+        ResultadoImportacionDTO finalizar() {
+            if (columnas == null) {
+                throw new IllegalArgumentException("El archivo está vacío: falta la fila de cabecera");
+            }
+            escribirLote();
+            long nanos = System.nanoTime() - inicio;
+            resultado.setDuracionMs(nanos / 1_000_000);
+            resultado.setFilasPorSegundo(nanos == 0 ? 0 : resultado.getFilasLeidas() * 1_000_000_000.0 / nanos);
+            log.info("Importación de instrumentos: {} filas leídas, {} insertadas, {} actualizadas, {} con error en {} ms",
+                    resultado.getFilasLeidas(), resultado.getInsertadas(), resultado.getActualizadas(),
+                    resultado.getFilasConError(), resultado.getDuracionMs());
+            return resultado;
+        }
+
+        private void leerCabecera(String[] valores) {
+            columnas = new HashMap<>();
+            for (int i = 0; i < valores.length; i++) {
+                if (valores[i] != null && !valores[i].isBlank()) {
+                    columnas.putIfAbsent(normalizarCabecera(valores[i]), i);
+                }
+            }
+            for (String obligatoria : List.of(COL_INSTRUMENTO, COL_PRECIO, COL_CATEGORIA)) {
+                if (!columnas.containsKey(obligatoria)) {
+                    throw new IllegalArgumentException("Falta la columna obligatoria '" + obligatoria + "' en la cabecera");
+                }
+            }
+        }
+
+        private FilaInstrumento convertir(long numeroFila, String[] valores) {
+            FilaInstrumento fila = new FilaInstrumento();
+            fila.numeroFila = numeroFila;
+
+            String id = valor(valores, COL_ID);
+            if (id != null) {
+                fila.id = parsearLong(id, "id");
+            }
+            fila.instrumento = texto(valores, COL_INSTRUMENTO, 150);
+            if (fila.instrumento == null) {
+                throw new IllegalArgumentException("El nombre del instrumento es obligatorio");
+            }
+            fila.marca = texto(valores, COL_MARCA, 50);
+            fila.modelo = texto(valores, COL_MODELO, 50);
+            fila.imagen = texto(valores, COL_IMAGEN, 255);
+            fila.costoEnvio = texto(valores, COL_COSTO_ENVIO, 50);
+            fila.descripcion = valor(valores, COL_DESCRIPCION);
+
+            String precio = valor(valores, COL_PRECIO);
+            if (precio == null) {
+                throw new IllegalArgumentException("El precio es obligatorio");
+            }
+            try {
+                fila.precio = new BigDecimal(precio.replace(',', '.'));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Precio inválido: " + precio);
+            }
+            if (fila.precio.signum() < 0 || fila.precio.scale() > 2 || fila.precio.precision() - fila.precio.scale() > 8) {
+                throw new IllegalArgumentException("Precio fuera de rango: " + precio);
+            }
+
+            String cantidadVendida = valor(valores, COL_CANTIDAD_VENDIDA);
+            if (cantidadVendida != null) {
+                long cantidad = parsearLong(cantidadVendida, "cantidadVendida");
+                if (cantidad < 0 || cantidad > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Cantidad vendida fuera de rango: " + cantidadVendida);
+                }
+                fila.cantidadVendida = (int) cantidad;
+            }
+
+            String categoria = valor(valores, COL_CATEGORIA);
+            if (categoria == null) {
+                throw new IllegalArgumentException("La categoría es obligatoria");
+            }
+            fila.categoriaId = resolverCategoria(categoria);
+            return fila;
+        }
+
+        private Long resolverCategoria(String categoria) {
+            Long id = null;
+            if (categoria.chars().allMatch(Character::isDigit)) {
+                id = categoriasPorId.get(Long.parseLong(categoria));
+            }
+            if (id == null) {
+                id = categoriasPorDenominacion.get(categoria.toLowerCase(Locale.ROOT));
+            }
+            if (id == null) {
+                throw new IllegalArgumentException("Categoría no encontrada: " + categoria);
+            }
+            return id;
+        }
+
+        private String valor(String[] valores, String columna) {
+            Integer indice = columnas.get(columna);
+            if (indice == null || indice >= valores.length || valores[indice] == null) {
+                return null;
+            }
+            String valor = valores[indice].trim();
+            return valor.isEmpty() ? null : valor;
+        }
+
+        private String texto(String[] valores, String columna, int largoMaximo) {
+            String valor = valor(valores, columna);
+            if (valor != null && valor.length() > largoMaximo) {
+                throw new IllegalArgumentException("El campo '" + columna + "' supera los " + largoMaximo + " caracteres");
+            }
+            return valor;
+        }
+
+        private long parsearLong(String valor, String columna) {
+            try {
+                // Excel guarda los enteros como double: "12" o "12.0" son válidos
+                return new BigDecimal(valor).longValueExact();
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new IllegalArgumentException("Valor inválido para '" + columna + "': " + valor);
+            }
+        }
+
+        private boolean esVacia(String[] valores) {
+            for (String valor : valores) {
+                if (valor != null && !valor.isBlank()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void registrarError(long numeroFila, String mensaje) {
+            resultado.setFilasConError(resultado.getFilasConError() + 1);
+            if (resultado.getErrores().size() < maxErroresInformados) {
+                resultado.getErrores().add(new ResultadoImportacionDTO.ErrorFila(numeroFila, mensaje));
+            }
+        }
+
+        /**
+         * Escribe el lote pendiente en una transacción. Si el batch falla (por ejemplo una fila choca
+         * con una restricción de la base), se reintenta fila por fila para aislar las que fallan.
+         * Las filas se cuentan recién después del commit: un lote revertido no suma nada.
+         */
+        private void escribirLote() {
+            if (loteInsert.isEmpty() && loteUpsert.isEmpty()) {
+                return;
+            }
+            try {
+                Long actualizadas = transactionTemplate.execute(status -> {
+                    insertar(loteInsert);
+                    return upsert(loteUpsert);
+                });
+                contarEscritas(loteInsert.size() + loteUpsert.size(), actualizadas);
+            } catch (DataAccessException e) {
+                log.debug("Falló el lote de importación, se reintenta fila por fila", e);
+                for (FilaInstrumento fila : loteInsert) {
+                    escribirFila(fila, () -> insertar(List.of(fila)));
+                }
+                for (FilaInstrumento fila : loteUpsert) {
+                    escribirFila(fila, () -> upsert(List.of(fila)));
+                }
+            }
+            loteInsert.clear();
+            loteUpsert.clear();
+        }
+
+        private void escribirFila(FilaInstrumento fila, Supplier<Long> escritura) {
+            try {
+                contarEscritas(1, transactionTemplate.execute(status -> escritura.get()));
+            } catch (DataAccessException e) {
+                registrarError(fila.numeroFila, "Error al guardar: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+
+        private void contarEscritas(long filas, long actualizadas) {
+            resultado.setInsertadas(resultado.getInsertadas() + filas - actualizadas);
+            resultado.setActualizadas(resultado.getActualizadas() + actualizadas);
+        }
+
+        // Devuelve cuántas filas actualizó (siempre 0: todas son nuevas)
+        private long insertar(List<FilaInstrumento> filas) {
+            if (!filas.isEmpty()) {
+                jdbcTemplate.batchUpdate(SQL_INSERT, filas, filas.size(), (ps, fila) -> asignarParametros(ps, fila, 1));
+            }
+            return 0;
+        }
+
+        // Devuelve cuántas filas ya existían y se actualizaron; el resto se insertó
+        private long upsert(List<FilaInstrumento> filas) {
+            if (filas.isEmpty()) {
+                return 0;
+            }
+            // Con rewriteBatchedStatements el driver no informa filas afectadas por sentencia,
+            // así que las actualizaciones se cuentan consultando qué ids ya existían
+            Map<Long, Integer> vendidasGuardadas = cantidadesVendidasGuardadas(filas);
+            Set<Long> existentes = new HashSet<>(vendidasGuardadas.keySet());
+            jdbcTemplate.batchUpdate(SQL_UPSERT, filas, filas.size(), (ps, fila) -> {
+                ps.setLong(1, fila.id);
+                asignarParametros(ps, fila, 2);
+            });
+            long actualizadas = 0;
+            Map<Long, Long> diferenciasVendidas = new HashMap<>();
+            for (FilaInstrumento fila : filas) {
+                if (!existentes.add(fila.id)) {
+                    actualizadas++;
+                }
+                Integer guardada = vendidasGuardadas.get(fila.id);
+                if (guardada != null && fila.cantidadVendida != null) {
+                    diferenciasVendidas.put(fila.id, fila.cantidadVendida - (guardada + ventas.getPendientes(fila.id)));
+                }
+            }
+            ventas.corregir(diferenciasVendidas);
+            return actualizadas;
+        }
+
+        // Cantidad vendida guardada de las filas que ya existen, por id
+        private Map<Long, Integer> cantidadesVendidasGuardadas(List<FilaInstrumento> filas) {
+            String marcadores = String.join(",", Collections.nCopies(filas.size(), "?"));
+            Object[] ids = filas.stream().map(f -> f.id).toArray();
+            Map<Long, Integer> vendidas = new HashMap<>();
+            jdbcTemplate.query("SELECT id, cantidad_vendida FROM instrumentos WHERE id IN (" + marcadores + ")",
+                    rs -> { vendidas.put(rs.getLong(1), rs.getInt(2)); }, ids);
+            return vendidas;
+        }
+
+        private void asignarParametros(PreparedStatement ps, FilaInstrumento fila, int desde) throws SQLException {
+            int i = desde;
+            ps.setString(i++, fila.instrumento);
+            ps.setString(i++, fila.marca);
+            ps.setString(i++, fila.modelo);
+            ps.setString(i++, fila.imagen);
+            ps.setBigDecimal(i++, fila.precio);
+            ps.setString(i++, fila.costoEnvio);
+            ps.setInt(i++, fila.cantidadVendida == null ? 0 : fila.cantidadVendida);
+            if (fila.descripcion == null) {
+                ps.setNull(i++, Types.LONGVARCHAR);
+            } else {
+                ps.setString(i++, fila.descripcion);
+            }
+            ps.setLong(i, fila.categoriaId);
+        }
+    }
+
+    private static class FilaInstrumento {
+        long numeroFila;
+        Long id;
+        String instrumento;
+        String marca;
+        String modelo;
+        String imagen;
+        BigDecimal precio;
+        String costoEnvio;
+        Integer cantidadVendida;    // null = la celda vino vacía
+        String descripcion;
+        Long categoriaId;
+    }
+
+    /**
+     * Recibe los eventos de fila del parser SAX y arma un arreglo de valores por fila,
+     * respetando la columna de cada celda (las celdas vacías no generan eventos).
+     */
+    private static class ManejadorFilas implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final Importacion importacion;
+        private final List<String> valores = new ArrayList<>();
+
+        ManejadorFilas(Importacion importacion) {
+            this.importacion = importacion;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            valores.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            importacion.procesarFila(rowNum + 1L, valores.toArray(new String[0]));
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int columna = new CellReference(cellReference).getCol();
+            while (valores.size() < columna) {
+                valores.add(null);
+            }
+            valores.add(formattedValue);
+        }
+    }
+
+    /**
+     * Devuelve los números tal como están guardados (sin formato de moneda, miles ni notación
+     * científica), para que precios e ids se parseen igual que en el CSV.
+     */
+    private static class FormateadorValoresCrudos extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            return formatRawCellContents(value, formatIndex, formatString, false);
+        }
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+        }
+    }
+}
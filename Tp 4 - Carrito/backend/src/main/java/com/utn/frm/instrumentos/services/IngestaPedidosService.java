@@ -0,0 +1,421 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.DetallePedidoResponseDTO;
+import com.utn.frm.instrumentos.dto.IngestaPedidoDTO;
+import com.utn.frm.instrumentos.dto.InstrumentoDTO;
+import com.utn.frm.instrumentos.dto.PedidoRequestDTO;
+import com.utn.frm.instrumentos.dto.PedidoResponseDTO;
+import com.utn.frm.instrumentos.entities.Pedido;
+import com.utn.frm.instrumentos.entities.PedidoDetalle;
+import com.utn.frm.instrumentos.events.PedidoCreadoEvent;
+import com.utn.frm.instrumentos.repositories.PedidoRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.metamodel.mapping.JdbcMapping;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * IngestaPedidosService.java
+ * Ingesta diferida (write-behind) de pedidos para picos de carga.
+ * - El pedido se valida contra la tabla de precios en memoria y recibe su id definitivo al aceptarlo,
+ *   sin transacción ni consulta de instrumentos por pedido.
+ * - Los pedidos aceptados esperan en una cola acotada; si está llena se rechazan (el cliente reintenta).
+ * - Un único hilo escritor vacía la cola y guarda cada tanda de pedidos con inserts JDBC en lote y un solo
+ *   commit. Si la tanda falla se reintenta pedido por pedido para aislar al que falla.
+ * - Al apagar la aplicación se dejan de aceptar pedidos y se guardan los que quedaban en la cola.
+ */
+@Service
+public class IngestaPedidosService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestaPedidosService.class);
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String PERSISTIDO = "PERSISTIDO";
+    public static final String FALLIDO = "FALLIDO";
+
+    private static final String SQL_INSERT_PEDIDO = "INSERT INTO pedido (id, fecha, total, reserva_vence) VALUES (?, ?, ?, ?)";
+    private static final String SQL_INSERT_DETALLE =
+            "INSERT INTO pedido_detalle (id, cantidad, precio_unitario, instrumento_id, pedido_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String SQL_STOCK_INSTRUMENTO = "SELECT stock FROM instrumentos WHERE id = ?";
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private TablaPreciosService tablaPrecios;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private RollupPedidosService rollupPedidosService;
+
+    @Value("${app.pedidos.ingesta.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${app.pedidos.ingesta.capacidad-cola:10000}")
+    private int capacidadCola;
+
+    // Máximo de pedidos por commit
+    @Value("${app.pedidos.ingesta.tamanio-lote:500}")
+    private int tamanioLote;
+
+    // Cuánto espera el escritor a que se junten más pedidos antes de guardar una tanda incompleta
+    @Value("${app.pedidos.ingesta.espera-lote-ms:10}")
+    private long esperaLoteMs;
+
+    @Value("${app.pedidos.ingesta.espera-apagado-s:30}")
+    private long esperaApagadoS;
+
+    // Cuánto se recuerda el error de un pedido que no se pudo guardar
+    @Value("${app.pedidos.ingesta.ttl-fallidos-minutos:30}")
+    private long ttlFallidosMinutos;
+
+    private SessionFactoryImplementor sessionFactory;
+    private BeforeExecutionGenerator generadorPedido;
+    private BeforeExecutionGenerator generadorDetalle;
+    private JdbcMapping mappingFecha;
+    private JdbcMapping mappingReservaVence;
+
+    private BlockingQueue<PedidoPendiente> cola;
+    private Thread escritor;
+    private volatile boolean aceptando;
+
+    // Cada aceptación toma la lectura desde que ve aceptando hasta encolar; el apagado toma la escritura para
+    // dejar de aceptar, así ningún pedido entra a la cola después de que el escritor puede haberla visto vacía
+    private final ReadWriteLock compuertaAceptacion = new ReentrantReadWriteLock();
+
+    // Pedidos aceptados que todavía no se guardaron, y los que fallaron al guardarse
+    private final Map<Long, PedidoPendiente> pendientes = new ConcurrentHashMap<>();
+    private final Map<Long, PedidoFallido> fallidos = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (!habilitada) {
+            return;
+        }
+        sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EntityPersister persisterPedido = sessionFactory.getMappingMetamodel().getEntityDescriptor(Pedido.class);
+        // Los mismos generadores (tabla secuencias_id, pooled-lo) que usa Hibernate: no hay ids repetidos
+        generadorPedido = (BeforeExecutionGenerator) persisterPedido.getGenerator();
+        generadorDetalle = (BeforeExecutionGenerator) sessionFactory.getMappingMetamodel()
+                .getEntityDescriptor(PedidoDetalle.class).getGenerator();
+        // Las fechas se convierten igual que cuando las guarda Hibernate (zona horaria de almacenamiento)
+        mappingFecha = persisterPedido.findAttributeMapping("fecha").getSingleJdbcMapping();
+        mappingReservaVence = persisterPedido.findAttributeMapping("reservaVence").getSingleJdbcMapping();
+
+        cola = new ArrayBlockingQueue<>(capacidadCola);
+        aceptando = true;
+        escritor = new Thread(this::escribir, "ingesta-pedidos");
+        escritor.setDaemon(true);
+        escritor.start();
+        log.info("Ingesta diferida de pedidos habilitada (cola de {}, tandas de hasta {})", capacidadCola, tamanioLote);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (escritor == null) {
+            return;
+        }
+        compuertaAceptacion.writeLock().lock();
+        try {
+            aceptando = false;
+        } finally {
+            compuertaAceptacion.writeLock().unlock();
+        }
+        escritor.join(TimeUnit.SECONDS.toMillis(esperaApagadoS));
+        if (escritor.isAlive()) {
+            log.warn("La ingesta de pedidos no terminó en {} s: quedaron {} pedidos sin guardar", esperaApagadoS, cola.size());
+            escritor.interrupt();
+        }
+    }
+
+    /**
+     * Valida el pedido, le asigna id y lo encola para guardarlo en segundo plano.
+     * @throws IllegalStateException si la ingesta diferida está deshabilitada o la aplicación se está apagando.
+     * @throws RejectedExecutionException si la cola está llena.
+     * @throws RuntimeException si el pedido no es válido.
+     */
+    public IngestaPedidoDTO aceptar(PedidoRequestDTO pedidoRequest) {
+        compuertaAceptacion.readLock().lock();
+        try {
+            return aceptarAbierto(pedidoRequest);
+        } finally {
+            compuertaAceptacion.readLock().unlock();
+        }
+    }
+
+    private IngestaPedidoDTO aceptarAbierto(PedidoRequestDTO pedidoRequest) {
+        if (!aceptando) {
+            throw new IllegalStateException("La ingesta diferida de pedidos no está disponible");
+        }
+        Map<Long, Integer> cantidadesPorInstrumento = pedidoService.agruparCantidades(pedidoRequest);
+        List<Long> noEncontrados = cantidadesPorInstrumento.keySet().stream()
+                .filter(id -> tablaPrecios.obtener(id) == null)
+                .collect(Collectors.toList());
+        if (!noEncontrados.isEmpty()) {
+            throw new RuntimeException("Instrumentos no encontrados: " + noEncontrados);
+        }
+        if (cola.remainingCapacity() == 0) {
+            // Se rechaza antes de consumir ids
+            throw new RejectedExecutionException("La cola de ingesta de pedidos está llena");
+        }
+
+        // El stock se carga de la base, como en PedidoService: la tabla de precios puede estar desactualizada
+        StockService.Reserva reserva = stockService.reservar(cantidadesPorInstrumento, this::stockEnBase);
+        PedidoPendiente pedido;
+        try {
+            pedido = armar(cantidadesPorInstrumento);
+        } catch (RuntimeException e) {
+            stockService.liberar(reserva);
+            throw e;
+        }
+        pedido.reserva = reserva;
+        stockService.asociar(reserva, pedido.id);
+        pendientes.put(pedido.id, pedido);
+        if (!cola.offer(pedido)) {
+            pendientes.remove(pedido.id);
+            stockService.liberar(reserva);
+            throw new RejectedExecutionException("La cola de ingesta de pedidos está llena");
+        }
+        return new IngestaPedidoDTO(pedido.id, PENDIENTE, pedido.total, null);
+    }
+
+    /**
+     * Estado de un pedido aceptado. Si ya no está en memoria se busca en la base.
+     */
+    public Optional<IngestaPedidoDTO> consultar(Long pedidoId) {
+        PedidoPendiente pendiente = pendientes.get(pedidoId);
+        if (pendiente != null) {
+            return Optional.of(new IngestaPedidoDTO(pedidoId, PENDIENTE, pendiente.total, null));
+        }
+        PedidoFallido fallido = fallidos.get(pedidoId);
+        if (fallido != null) {
+            return Optional.of(new IngestaPedidoDTO(pedidoId, FALLIDO, null, fallido.error));
+        }
+        if (pedidoRepository.existsById(pedidoId)) {
+            return Optional.of(new IngestaPedidoDTO(pedidoId, PERSISTIDO, null, null));
+        }
+        return Optional.empty();
+    }
+
+    public int getPedidosEnCola() {
+        return cola == null ? 0 : cola.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.pedidos.ingesta.limpieza-ms:60000}")
+    public void limpiarFallidos() {
+        Instant limite = Instant.now().minus(Duration.ofMinutes(ttlFallidosMinutos));
+        fallidos.values().removeIf(fallido -> fallido.registrado.isBefore(limite));
+    }
+
+    // Solo se consulta para los instrumentos que StockService todavía no tiene en memoria
+    private Integer stockEnBase(Long instrumentoId) {
+        List<Integer> stock = jdbcTemplate.queryForList(SQL_STOCK_INSTRUMENTO, Integer.class, instrumentoId);
+        return stock.isEmpty() ? null : stock.get(0);
+    }
+
+    private PedidoPendiente armar(Map<Long, Integer> cantidadesPorInstrumento) {
+        PedidoPendiente pedido = new PedidoPendiente();
+        pedido.fecha = ZonedDateTime.now(ZoneId.of("America/Argentina/Buenos_Aires"));
+        BigDecimal total = BigDecimal.ZERO;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            SharedSessionContractImplementor implementor = (SharedSessionContractImplementor) session;
+            pedido.id = (Long) generadorPedido.generate(implementor, null, null, EventType.INSERT);
+            for (Map.Entry<Long, Integer> entrada : cantidadesPorInstrumento.entrySet()) {
+                TablaPreciosService.PrecioInstrumento precio = tablaPrecios.obtener(entrada.getKey());
+                DetallePendiente detalle = new DetallePendiente();
+                detalle.id = (Long) generadorDetalle.generate(implementor, null, null, EventType.INSERT);
+                detalle.cantidad = entrada.getValue();
+                detalle.precio = precio;
+                pedido.detalles.add(detalle);
+                total = total.add(precio.getPrecio().multiply(BigDecimal.valueOf(detalle.cantidad)));
+            }
+        }
+        pedido.total = total;
+        return pedido;
+    }
+
+    private void escribir() {
+        List<PedidoPendiente> tanda = new ArrayList<>(tamanioLote);
+        while (aceptando || !cola.isEmpty()) {
+            try {
+                PedidoPendiente primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                tanda.add(primero);
+                // Se juntan los pedidos que lleguen durante la ventana de espera, hasta llenar la tanda
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaLoteMs);
+                while (tanda.size() < tamanioLote) {
+                    cola.drainTo(tanda, tamanioLote - tanda.size());
+                    long restante = limite - System.nanoTime();
+                    if (tanda.size() >= tamanioLote || restante <= 0) {
+                        break;
+                    }
+                    PedidoPendiente siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+                    if (siguiente != null) {
+                        tanda.add(siguiente);
+                    }
+                }
+                guardarTanda(tanda);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error inesperado en la ingesta de pedidos", e);
+            } finally {
+                tanda.clear();
+            }
+        }
+    }
+
+    private void guardarTanda(List<PedidoPendiente> tanda) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertar(tanda));
+            tanda.forEach(pedido -> pendientes.remove(pedido.id));
+            log.debug("Ingesta: {} pedidos guardados en un commit", tanda.size());
+        } catch (RuntimeException e) {
+            log.debug("Falló una tanda de la ingesta de pedidos, se reintenta pedido por pedido", e);
+            for (PedidoPendiente pedido : tanda) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insertar(List.of(pedido)));
+                } catch (RuntimeException ex) {
+                    String causa = PedidoService.causaErrorAlGuardar(ex);
+                    log.warn("No se pudo guardar el pedido {} de la ingesta: {}", pedido.id, causa);
+                    fallidos.put(pedido.id, new PedidoFallido("Error al guardar el pedido: " + causa));
+                    stockService.liberar(pedido.reserva);
+                } finally {
+                    pendientes.remove(pedido.id);
+                }
+            }
+        }
+    }
+
+    // Se ejecuta dentro de la transacción de la tanda
+    private void insertar(List<PedidoPendiente> tanda) {
+        jdbcTemplate.batchUpdate(SQL_INSERT_PEDIDO, tanda, tanda.size(), (ps, pedido) -> {
+            ps.setLong(1, pedido.id);
+            bind(ps, mappingFecha, pedido.fecha, 2);
+            ps.setBigDecimal(3, pedido.total);
+            // Se lee al insertar: la reserva pudo renovarse o confirmarse mientras el pedido esperaba en la cola
+            bind(ps, mappingReservaVence, pedido.reserva.getVence(), 4);
+        });
+        List<Object[]> detalles = new ArrayList<>();
+        for (PedidoPendiente pedido : tanda) {
+            for (DetallePendiente detalle : pedido.detalles) {
+                detalles.add(new Object[]{detalle.id, detalle.cantidad, detalle.precio.getPrecio(), detalle.precio.getId(), pedido.id});
+            }
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERT_DETALLE, detalles);
+        for (PedidoPendiente pedido : tanda) {
+            long unidades = 0;
+            for (DetallePendiente detalle : pedido.detalles) {
+                unidades += detalle.cantidad;
+            }
+            rollupPedidosService.registrar(pedido.fecha, pedido.total, unidades);
+        }
+        // Los listeners transaccionales lo reciben recién después del commit de la tanda
+        tanda.forEach(pedido -> eventPublisher.publishEvent(new PedidoCreadoEvent(pedido.toResponseDTO())));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void bind(PreparedStatement ps, JdbcMapping mapping, Object valor, int indice) throws SQLException {
+        mapping.getJdbcValueBinder().bind(ps, mapping.convertToRelationalValue(valor), indice,
+                sessionFactory.getWrapperOptions());
+    }
+
+    private static class PedidoPendiente {
+        private Long id;
+        private ZonedDateTime fecha;
+        private BigDecimal total;
+        private StockService.Reserva reserva;
+        private final List<DetallePendiente> detalles = new ArrayList<>();
+
+        private PedidoResponseDTO toResponseDTO() {
+            PedidoResponseDTO dto = new PedidoResponseDTO();
+            dto.setId(id);
+            dto.setFecha(fecha);
+            dto.setTotal(total);
+            List<DetallePedidoResponseDTO> detallesDTO = new ArrayList<>(detalles.size());
+            for (DetallePendiente detalle : detalles) {
+                InstrumentoDTO instrumento = new InstrumentoDTO();
+                instrumento.setId(detalle.precio.getId());
+                instrumento.setInstrumento(detalle.precio.getInstrumento());
+                instrumento.setPrecio(detalle.precio.getPrecio());
+                DetallePedidoResponseDTO detalleDTO = new DetallePedidoResponseDTO();
+                detalleDTO.setCantidad(detalle.cantidad);
+                detalleDTO.setPrecioUnitario(detalle.precio.getPrecio());
+                detalleDTO.setInstrumento(instrumento);
+                detallesDTO.add(detalleDTO);
+            }
+            dto.setDetalles(detallesDTO);
+            return dto;
+        }
+    }
+
+    private static class DetallePendiente {
+        private Long id;
+        private int cantidad;
+        private TablaPreciosService.PrecioInstrumento precio;
+    }
+
+    private static class PedidoFallido {
+        private final String error;
+        private final Instant registrado = Instant.now();
+
+        private PedidoFallido(String error) {
+            this.error = error;
+        }
+    }
+}
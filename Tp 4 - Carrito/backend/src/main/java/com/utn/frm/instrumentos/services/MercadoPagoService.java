@@ -10,10 +10,10 @@ import com.mercadopago.client.preference.PreferenceRequest;
 import com.mercadopago.exceptions.MPApiException;
 import com.mercadopago.exceptions.MPException;
 import com.mercadopago.resources.preference.Preference;
+import com.utn.frm.instrumentos.dto.DetallePedidoResponseDTO;
+import com.utn.frm.instrumentos.dto.InstrumentoDTO;
+import com.utn.frm.instrumentos.dto.PedidoResponseDTO;
 import com.utn.frm.instrumentos.dto.PreferenceResponseDTO;
-import com.utn.frm.instrumentos.entities.Pedido;
-import com.utn.frm.instrumentos.entities.PedidoDetalle;
-import com.utn.frm.instrumentos.entities.Instrumento;
 import org.slf4j.Logger; // SLF4J Logger
 import org.slf4j.LoggerFactory; // SLF4J Logger
 import org.springframework.beans.factory.annotation.Value;
@@ -63,27 +63,29 @@ public class MercadoPagoService {
         }
     }
 
-    public PreferenceResponseDTO crearPreferenciaPago(Pedido pedido) throws MPException, MPApiException {
+    // Recibe el pedido ya convertido (el mismo que sirve la cache de pedidos): no hace falta volver a la base
+    public PreferenceResponseDTO crearPreferenciaPago(PedidoResponseDTO pedido) throws MPException, MPApiException {
         log.info("Iniciando creación de preferencia para Pedido ID: {}", pedido.getId());
 
         PreferenceClient client = new PreferenceClient();
         List<PreferenceItemRequest> items = new ArrayList<>();
 
         log.debug("Iterando sobre detalles del pedido ID: {}", pedido.getId());
-        for (PedidoDetalle detalle : pedido.getDetalles()) {
-            Instrumento instrumento = detalle.getInstrumento();
+        for (DetallePedidoResponseDTO detalle : pedido.getDetalles()) {
+            InstrumentoDTO instrumento = detalle.getInstrumento();
             if (instrumento == null) {
-                log.error("Error CRÍTICO: Instrumento es null para el detalle ID: {} del Pedido ID: {}", detalle.getId(), pedido.getId());
-                throw new RuntimeException("Inconsistencia de datos: Instrumento no encontrado para un detalle del pedido ID: " + detalle.getId());
+                log.error("Error CRÍTICO: Instrumento es null en un detalle del Pedido ID: {}", pedido.getId());
+                throw new RuntimeException("Inconsistencia de datos: Instrumento no encontrado para un detalle del pedido ID: " + pedido.getId());
             }
-            // Validación de precio
-            if (instrumento.getPrecio() == null || instrumento.getPrecio().compareTo(BigDecimal.ZERO) <= 0) {
-                log.error("Error CRÍTICO: Precio inválido (null, cero o negativo) para el Instrumento ID: {}. Precio: {}", instrumento.getId(), instrumento.getPrecio());
+            // Se cobra el precio con el que se armó el pedido (el mismo que suma el total)
+            BigDecimal precioUnitario = detalle.getPrecioUnitario();
+            if (precioUnitario == null || precioUnitario.compareTo(BigDecimal.ZERO) <= 0) {
+                log.error("Error CRÍTICO: Precio inválido (null, cero o negativo) para el Instrumento ID: {}. Precio: {}", instrumento.getId(), precioUnitario);
                 throw new RuntimeException("Precio inválido para el instrumento ID: " + instrumento.getId() + ". El precio debe ser mayor que cero.");
             }
 
             log.debug("Añadiendo item al request de MP: [ID Instrumento: {}, Título: '{}', Cantidad: {}, Precio Unitario: {}]",
-                    instrumento.getId(), instrumento.getInstrumento(), detalle.getCantidad(), instrumento.getPrecio());
+                    instrumento.getId(), instrumento.getInstrumento(), detalle.getCantidad(), precioUnitario);
 
             items.add(
                     PreferenceItemRequest.builder()
@@ -91,7 +93,7 @@ public class MercadoPagoService {
                             .title(instrumento.getInstrumento())
                             .quantity(detalle.getCantidad())
                             .currencyId("ARS")
-                            .unitPrice(instrumento.getPrecio())
+                            .unitPrice(precioUnitario)
                             .build());
         }
 
@@ -0,0 +1,92 @@
+package com.utn.frm.instrumentos.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.utn.frm.instrumentos.dto.DetallePedidoResponseDTO;
+import com.utn.frm.instrumentos.dto.EstadisticasCachePedidosDTO;
+import com.utn.frm.instrumentos.dto.PedidoResponseDTO;
+import com.utn.frm.instrumentos.events.PedidoCreadoEvent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.function.Function;
+
+/**
+ * PedidoCacheService.java
+ * Cache en memoria de PedidoResponseDTO por id. Un pedido no cambia después de creado, así que no vence:
+ * se carga al confirmarse el alta (cualquier vía) o en la primera lectura, y sale solo por espacio.
+ * - Acotada por tamaño estimado en bytes (los pedidos con muchos detalles pesan más), con la política
+ *   W-TinyLFU de Caffeine.
+ * - Registra aciertos, fallos y desalojos.
+ * Los DTO cacheados se comparten entre requests: no se deben modificar.
+ */
+@Service
+public class PedidoCacheService {
+
+    // Estimación grosera del tamaño en memoria de un pedido y de cada detalle
+    private static final int BYTES_PEDIDO = 160;
+    private static final int BYTES_DETALLE = 200;
+
+    @Value("${app.pedidos.cache.bytes-maximos:33554432}")
+    private long bytesMaximos;
+
+    private Cache<Long, PedidoResponseDTO> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(bytesMaximos)
+                .weigher((Long id, PedidoResponseDTO pedido) -> estimarBytes(pedido))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param cargar lee el pedido si no está en la cache; puede devolver null (pedido inexistente, no se cachea).
+     */
+    public PedidoResponseDTO obtener(Long pedidoId, Function<Long, PedidoResponseDTO> cargar) {
+        return cache.get(pedidoId, cargar);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPedidoCreado(PedidoCreadoEvent evento) {
+        cache.put(evento.getPedido().getId(), evento.getPedido());
+    }
+
+    // Para cuando un pedido pueda cambiar (estado, anulación): quien lo modifique debe invalidarlo
+    public void invalidar(Long pedidoId) {
+        cache.invalidate(pedidoId);
+    }
+
+    public void invalidarTodo() {
+        cache.invalidateAll();
+    }
+
+    public EstadisticasCachePedidosDTO obtenerEstadisticas() {
+        CacheStats stats = cache.stats();
+        EstadisticasCachePedidosDTO dto = new EstadisticasCachePedidosDTO();
+        dto.setAciertos(stats.hitCount());
+        dto.setFallos(stats.missCount());
+        dto.setTasaAciertos(stats.requestCount() == 0 ? 0 : stats.hitRate());
+        dto.setDesalojos(stats.evictionCount());
+        dto.setEntradas(cache.estimatedSize());
+        dto.setBytesEstimados(cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        dto.setBytesMaximos(bytesMaximos);
+        return dto;
+    }
+
+    static int estimarBytes(PedidoResponseDTO pedido) {
+        int bytes = BYTES_PEDIDO;
+        if (pedido.getDetalles() != null) {
+            for (DetallePedidoResponseDTO detalle : pedido.getDetalles()) {
+                String nombre = detalle.getInstrumento() == null ? null : detalle.getInstrumento().getInstrumento();
+                bytes += BYTES_DETALLE + (nombre == null ? 0 : 2 * nombre.length());
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,192 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.PedidoRequestDTO;
+import com.utn.frm.instrumentos.dto.PedidoResponseDTO;
+import com.utn.frm.instrumentos.dto.ResultadoLotePedidosDTO;
+import com.utn.frm.instrumentos.dto.ResultadoPedidoLoteDTO;
+import com.utn.frm.instrumentos.entities.Instrumento;
+import com.utn.frm.instrumentos.entities.Pedido;
+import com.utn.frm.instrumentos.entities.PedidoDetalle;
+import com.utn.frm.instrumentos.events.PedidoCreadoEvent;
+import com.utn.frm.instrumentos.repositories.PedidoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PedidoLoteService.java
+ * Alta de muchos pedidos en una sola llamada (terminales de venta, sincronización con marketplaces).
+ * - Todos los pedidos se validan contra una única consulta de instrumentos.
+ * - Los pedidos válidos se guardan por tramos, cada tramo en su propia transacción y con inserts en lote;
+ *   si un tramo falla se reintenta pedido por pedido para aislar al que falla.
+ * - Cada pedido creado publica su PedidoCreadoEvent, que los listeners reciben al hacer commit el tramo.
+ */
+@Service
+public class PedidoLoteService {
+
+    private static final Logger log = LoggerFactory.getLogger(PedidoLoteService.class);
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private RollupPedidosService rollupPedidosService;
+
+    @Value("${app.pedidos.lote.max-pedidos:1000}")
+    private int maxPedidos;
+
+    @Value("${app.pedidos.lote.pedidos-por-transaccion:100}")
+    private int pedidosPorTransaccion;
+
+    public ResultadoLotePedidosDTO crearPedidos(List<PedidoRequestDTO> pedidosRequest) {
+        if (pedidosRequest == null || pedidosRequest.isEmpty()) {
+            throw new IllegalArgumentException("El lote no tiene pedidos");
+        }
+        if (pedidosRequest.size() > maxPedidos) {
+            throw new IllegalArgumentException("El lote supera el máximo de " + maxPedidos + " pedidos");
+        }
+        long inicio = System.nanoTime();
+        ResultadoPedidoLoteDTO[] resultados = new ResultadoPedidoLoteDTO[pedidosRequest.size()];
+
+        // Validación de forma y unión de líneas repetidas, pedido por pedido
+        List<Map<Long, Integer>> cantidades = new ArrayList<>(pedidosRequest.size());
+        Set<Long> idsInstrumentos = new HashSet<>();
+        for (int i = 0; i < pedidosRequest.size(); i++) {
+            Map<Long, Integer> cantidadesPedido = null;
+            try {
+                cantidadesPedido = pedidoService.agruparCantidades(pedidosRequest.get(i));
+                idsInstrumentos.addAll(cantidadesPedido.keySet());
+            } catch (RuntimeException e) {
+                resultados[i] = ResultadoPedidoLoteDTO.fallido(i, e.getMessage());
+            }
+            cantidades.add(cantidadesPedido);
+        }
+
+        // Una sola consulta para los instrumentos de todo el lote
+        Map<Long, Instrumento> instrumentos = pedidoService.buscarInstrumentos(idsInstrumentos);
+
+        List<PedidoArmado> tramo = new ArrayList<>(pedidosPorTransaccion);
+        for (int i = 0; i < pedidosRequest.size(); i++) {
+            if (cantidades.get(i) == null) {
+                continue;
+            }
+            try {
+                Pedido pedido = pedidoService.armarPedido(cantidades.get(i), instrumentos);
+                StockService.Reserva reserva = stockService.reservar(cantidades.get(i), id -> instrumentos.get(id).getStock());
+                pedido.setReservaVence(reserva.getVence());
+                tramo.add(new PedidoArmado(i, pedido, reserva));
+            } catch (RuntimeException e) {
+                resultados[i] = ResultadoPedidoLoteDTO.fallido(i, e.getMessage());
+            }
+            if (tramo.size() == pedidosPorTransaccion) {
+                guardarTramo(tramo, resultados);
+                tramo.clear();
+            }
+        }
+        guardarTramo(tramo, resultados);
+
+        ResultadoLotePedidosDTO respuesta = new ResultadoLotePedidosDTO();
+        respuesta.setRecibidos(resultados.length);
+        respuesta.setCreados((int) Arrays.stream(resultados).filter(ResultadoPedidoLoteDTO::isCreado).count());
+        respuesta.setFallidos(resultados.length - respuesta.getCreados());
+        respuesta.setDuracionMs((System.nanoTime() - inicio) / 1_000_000);
+        respuesta.setResultados(Arrays.asList(resultados));
+        log.info("Lote de pedidos: {} recibidos, {} creados, {} fallidos en {} ms",
+                respuesta.getRecibidos(), respuesta.getCreados(), respuesta.getFallidos(), respuesta.getDuracionMs());
+        return respuesta;
+    }
+
+    private void guardarTramo(List<PedidoArmado> tramo, ResultadoPedidoLoteDTO[] resultados) {
+        if (tramo.isEmpty()) {
+            return;
+        }
+        try {
+            List<ResultadoPedidoLoteDTO> creados = transactionTemplate.execute(status -> guardar(tramo));
+            creados.forEach(resultado -> resultados[resultado.getIndice()] = resultado);
+        } catch (RuntimeException e) {
+            // Los tramos anteriores ya están confirmados, así que este no puede cortar el lote:
+            // cada pedido termina creado o fallido.
+            log.debug("Falló un tramo del lote de pedidos, se reintenta pedido por pedido", e);
+            for (PedidoArmado armado : tramo) {
+                try {
+                    // El intento anterior pudo dejar ids asignados: se guarda una copia limpia
+                    PedidoArmado copia = new PedidoArmado(armado.indice, copiar(armado.pedido), armado.reserva);
+                    resultados[armado.indice] = transactionTemplate.execute(status -> guardar(List.of(copia))).get(0);
+                } catch (RuntimeException ex) {
+                    stockService.liberar(armado.reserva);
+                    String causa = PedidoService.causaErrorAlGuardar(ex);
+                    resultados[armado.indice] = ResultadoPedidoLoteDTO.fallido(armado.indice, "Error al guardar el pedido: " + causa);
+                }
+            }
+        }
+    }
+
+    // Se ejecuta dentro de la transacción del tramo
+    private List<ResultadoPedidoLoteDTO> guardar(List<PedidoArmado> tramo) {
+        List<Pedido> pedidos = new ArrayList<>(tramo.size());
+        tramo.forEach(armado -> pedidos.add(armado.pedido));
+        pedidoRepository.saveAll(pedidos);
+        pedidoRepository.flush();
+        rollupPedidosService.registrar(pedidos);
+
+        List<ResultadoPedidoLoteDTO> creados = new ArrayList<>(tramo.size());
+        for (PedidoArmado armado : tramo) {
+            stockService.asociar(armado.reserva, armado.pedido.getId());
+            PedidoResponseDTO respuesta = pedidoService.convertirAResponseDTO(armado.pedido);
+            eventPublisher.publishEvent(new PedidoCreadoEvent(respuesta));
+            creados.add(ResultadoPedidoLoteDTO.creado(armado.indice, respuesta));
+        }
+        return creados;
+    }
+
+    private static Pedido copiar(Pedido original) {
+        Pedido pedido = new Pedido();
+        pedido.setFecha(original.getFecha());
+        pedido.setTotal(original.getTotal());
+        pedido.setReservaVence(original.getReservaVence());
+        original.getDetalles().forEach(detalleOriginal -> {
+            PedidoDetalle detalle = new PedidoDetalle();
+            detalle.setCantidad(detalleOriginal.getCantidad());
+            detalle.setPrecioUnitario(detalleOriginal.getPrecioUnitario());
+            detalle.setInstrumento(detalleOriginal.getInstrumento());
+            detalle.setPedido(pedido);
+            pedido.getDetalles().add(detalle);
+        });
+        return pedido;
+    }
+
+    private static class PedidoArmado {
+        final int indice;
+        final Pedido pedido;
+        final StockService.Reserva reserva;
+
+        PedidoArmado(int indice, Pedido pedido, StockService.Reserva reserva) {
+            this.indice = indice;
+            this.pedido = pedido;
+            this.reserva = reserva;
+        }
+    }
+}
@@ -2,26 +2,37 @@ package com.utn.frm.instrumentos.services;
 
 import com.utn.frm.instrumentos.dto.*;
 import com.utn.frm.instrumentos.entities.*;
+import com.utn.frm.instrumentos.events.PedidoCreadoEvent;
 import com.utn.frm.instrumentos.repositories.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
-import org.apache.commons.io.output.ByteArrayOutputStream;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class PedidoService {
@@ -32,33 +43,107 @@ public class PedidoService {
     @Autowired
     private InstrumentoRepository instrumentoRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private PedidoCacheService pedidoCacheService;
+
+    @Autowired
+    private RollupPedidosService rollupPedidosService;
+
+    // Cantidad de filas que el libro SXSSF del reporte Excel mantiene en memoria antes de volcarlas a disco
+    @Value("${app.reportes.excel.ventana-filas:100}")
+    private int ventanaFilasExcel;
+
+    // Tope de pedidos por página en el listado paginado
+    @Value("${app.pedidos.pagina.tamanio-maximo:100}")
+    private int tamanioMaximoPagina;
+
     @Transactional
     public PedidoResponseDTO crearPedido(PedidoRequestDTO pedidoRequest) {
+        Map<Long, Integer> cantidadesPorInstrumento = agruparCantidades(pedidoRequest);
+        // Una sola consulta (IN) para todos los instrumentos del pedido
+        Map<Long, Instrumento> instrumentos = buscarInstrumentos(cantidadesPorInstrumento.keySet());
+        Pedido pedido = armarPedido(cantidadesPorInstrumento, instrumentos);
+        // Reserva en memoria, sin lock sobre las filas de los instrumentos
+        StockService.Reserva reserva = stockService.reservar(cantidadesPorInstrumento, id -> instrumentos.get(id).getStock());
+        stockService.liberarSiSeRevierte(reserva);
+        pedido.setReservaVence(reserva.getVence());
+        Pedido pedidoGuardado = pedidoRepository.save(pedido);
+        stockService.asociar(reserva, pedidoGuardado.getId());
+        rollupPedidosService.registrar(pedidoGuardado);
+
+        PedidoResponseDTO respuesta = convertirAResponseDTO(pedidoGuardado);
+        // Los listeners transaccionales lo reciben recién después del commit
+        eventPublisher.publishEvent(new PedidoCreadoEvent(respuesta));
+        return respuesta;
+    }
+
+    /**
+     * Valida los detalles del pedido y une las líneas repetidas de un mismo instrumento sumando
+     * cantidades (respeta el orden del carrito).
+     * @return cantidad pedida por id de instrumento.
+     */
+    Map<Long, Integer> agruparCantidades(PedidoRequestDTO pedidoRequest) {
+        if (pedidoRequest.getDetalles() == null || pedidoRequest.getDetalles().isEmpty()) {
+            throw new RuntimeException("El pedido no tiene detalles");
+        }
+        Map<Long, Integer> cantidadesPorInstrumento = new LinkedHashMap<>();
+        for (DetallePedidoRequestDTO detalleRequest : pedidoRequest.getDetalles()) {
+            if (detalleRequest.getInstrumentoId() == null) {
+                throw new RuntimeException("Cada detalle del pedido debe indicar el instrumento");
+            }
+            if (detalleRequest.getCantidad() == null || detalleRequest.getCantidad() <= 0) {
+                throw new RuntimeException("Cantidad inválida para el instrumento: " + detalleRequest.getInstrumentoId());
+            }
+            cantidadesPorInstrumento.merge(detalleRequest.getInstrumentoId(), detalleRequest.getCantidad(), Integer::sum);
+        }
+        return cantidadesPorInstrumento;
+    }
+
+    Map<Long, Instrumento> buscarInstrumentos(Collection<Long> ids) {
+        return instrumentoRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Instrumento::getId, Function.identity()));
+    }
+
+    /**
+     * Arma el pedido (sin guardarlo) con el precio actual de cada instrumento.
+     * Si falta alguno de los instrumentos informa todos los ids no encontrados juntos.
+     */
+    Pedido armarPedido(Map<Long, Integer> cantidadesPorInstrumento, Map<Long, Instrumento> instrumentos) {
+        List<Long> noEncontrados = cantidadesPorInstrumento.keySet().stream()
+                .filter(id -> !instrumentos.containsKey(id))
+                .collect(Collectors.toList());
+        if (!noEncontrados.isEmpty()) {
+            throw new RuntimeException("Instrumentos no encontrados: " + noEncontrados);
+        }
+
         Pedido pedido = new Pedido();
         pedido.setFecha(ZonedDateTime.now(ZoneId.of("America/Argentina/Buenos_Aires")));
 
         List<PedidoDetalle> detalles = new ArrayList<>();
-        BigDecimal total = BigDecimal.ZERO;
-
-        for (DetallePedidoRequestDTO detalleRequest : pedidoRequest.getDetalles()) {
-            Instrumento instrumento = instrumentoRepository.findById(detalleRequest.getInstrumentoId())
-                    .orElseThrow(() -> new RuntimeException("Instrumento no encontrado: " + detalleRequest.getInstrumentoId()));
+        cantidadesPorInstrumento.forEach((instrumentoId, cantidad) -> {
+            Instrumento instrumento = instrumentos.get(instrumentoId);
 
             PedidoDetalle detalle = new PedidoDetalle();
-            detalle.setCantidad(detalleRequest.getCantidad());
+            detalle.setCantidad(cantidad);
             detalle.setPrecioUnitario(instrumento.getPrecio());
             detalle.setInstrumento(instrumento);
             detalle.setPedido(pedido);
 
             detalles.add(detalle);
-            total = total.add(instrumento.getPrecio().multiply(BigDecimal.valueOf(detalleRequest.getCantidad())));
-        }
+        });
 
         pedido.setDetalles(detalles);
-        pedido.setTotal(total);
-        Pedido pedidoGuardado = pedidoRepository.save(pedido);
-
-        return convertirAResponseDTO(pedidoGuardado);
+        pedido.setTotal(calcularTotal(detalles));
+        return pedido;
     }
 
     public List<PedidoResponseDTO> obtenerTodosPedidos() {
@@ -67,7 +152,80 @@ public class PedidoService {
                 .collect(Collectors.toList());
     }
 
-    private PedidoResponseDTO convertirAResponseDTO(Pedido pedido) {
+    /**
+     * Página del listado de pedidos, del más reciente al más antiguo, en dos fases:
+     * primero los ids de la página (keyset sobre fecha e id, con los filtros), después solo esos
+     * pedidos con sus detalles e instrumentos. El costo depende del tamaño de la página y no del
+     * total de pedidos.
+     * @param cursor {@code siguienteCursor} de la página anterior, o null para la primera.
+     */
+    public PaginaPedidosDTO listarPedidosPagina(FiltroPedidosDTO filtro, String cursor, int tamanio) {
+        int tamanioPagina = Math.min(Math.max(tamanio, 1), tamanioMaximoPagina);
+        ZonedDateTime fechaCursor = null;
+        Long idCursor = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] partes = decodificarCursor(cursor);
+            fechaCursor = Instant.ofEpochSecond(Long.parseLong(partes[0]), Long.parseLong(partes[1]))
+                    .atZone(ZoneId.of("America/Argentina/Buenos_Aires"));
+            idCursor = Long.parseLong(partes[2]);
+        }
+
+        // Se pide un id de más para saber si hay otra página sin hacer un COUNT
+        List<Long> ids = pedidoRepository.buscarIdsPagina(filtro, fechaCursor, idCursor, tamanioPagina + 1);
+        boolean hayMas = ids.size() > tamanioPagina;
+        if (hayMas) {
+            ids = ids.subList(0, tamanioPagina);
+        }
+        List<Pedido> pedidos = ids.isEmpty() ? List.of() : pedidoRepository.findByIdInWithDetalles(ids);
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            Pedido ultimo = pedidos.get(pedidos.size() - 1);
+            Instant instante = ultimo.getFecha().toInstant();
+            String valor = instante.getEpochSecond() + ":" + instante.getNano() + ":" + ultimo.getId();
+            siguienteCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+        }
+        return new PaginaPedidosDTO(pedidos.stream().map(this::convertirAResponseDTO).collect(Collectors.toList()),
+                siguienteCursor);
+    }
+
+    // El cursor es "segundos:nanos:id" del último pedido de la página, en Base64 URL
+    private static String[] decodificarCursor(String cursor) {
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (partes.length != 3) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            for (String parte : partes) {
+                Long.parseLong(parte);
+            }
+            return partes;
+        } catch (IllegalArgumentException e) { // incluye NumberFormatException y Base64 mal formado
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    // Suma precio unitario por cantidad de cada detalle
+    static BigDecimal calcularTotal(List<PedidoDetalle> detalles) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (PedidoDetalle detalle : detalles) {
+            total = total.add(detalle.getPrecioUnitario().multiply(BigDecimal.valueOf(detalle.getCantidad())));
+        }
+        return total;
+    }
+
+    /**
+     * Motivo que se informa cuando no se pudo guardar un pedido de un lote o de la ingesta diferida.
+     * No solo llegan errores de datos: también puede fallar el commit (TransactionSystemException) u
+     * otra cosa, así que solo se busca la causa de la base cuando es una DataAccessException.
+     */
+    static String causaErrorAlGuardar(RuntimeException e) {
+        return e instanceof DataAccessException
+                ? ((DataAccessException) e).getMostSpecificCause().getMessage() : e.getMessage();
+    }
+
+    // Visibilidad de paquete para poder medirlo desde los benchmarks JMH
+    PedidoResponseDTO convertirAResponseDTO(Pedido pedido) {
         PedidoResponseDTO dto = new PedidoResponseDTO();
         dto.setId(pedido.getId());
         dto.setFecha(pedido.getFecha());
@@ -107,64 +265,103 @@ public class PedidoService {
 
 
     public PedidoResponseDTO obtenerPedidoDTOPorId(Long pedidoId) {
-        Optional<Pedido> pedidoOptional = pedidoRepository.findByIdWithDetallesAndInstrumentos(pedidoId);
-        if (!pedidoOptional.isPresent()) {
-            throw new RuntimeException("Pedido no encontrado con ID: " + pedidoId);
-        }
-        return convertirAResponseDTO(pedidoOptional.get());
+        return buscarPedidoDTO(pedidoId)
+                .orElseThrow(() -> new RuntimeException("Pedido no encontrado con ID: " + pedidoId));
     }
 
-    //Gnera un reporte de pedidos en Excel
-    public ByteArrayInputStream generarReporteExcel(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta) throws IOException {
-
-        List<Pedido> pedidos = pedidoRepository.findByFechaBetweenWithDetalles(fechaDesde, fechaHasta);
-
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Reporte Pedidos");
+    /**
+     * Pedido por id desde la cache de pedidos; si no está se lee con sus detalles e instrumentos
+     * y queda cacheado (los pedidos no cambian después de creados).
+     */
+    public Optional<PedidoResponseDTO> buscarPedidoDTO(Long pedidoId) {
+        return Optional.ofNullable(pedidoCacheService.obtener(pedidoId, id ->
+                pedidoRepository.findByIdWithDetallesAndInstrumentos(id).map(this::convertirAResponseDTO).orElse(null)));
+    }
 
-        // Cabeceras
-        String[] headers = {"Fecha Pedido", "Instrumento", "Marca", "Modelo", "Cantidad", "Precio Unitario", "Subtotal"};
-        Row headerRow = sheet.createRow(0);
-        for (int i = 0; i < headers.length; i++) {
-            headerRow.createCell(i).setCellValue(headers[i]);
+    /**
+     * Recorre los pedidos del rango con un cursor de base de datos, en orden de fecha.
+     * Cada pedido se desvincula del contexto de persistencia (junto con sus detalles) apenas
+     * el consumidor termina de procesarlo, así la memoria usada no crece con el tamaño del rango.
+     * Sirve para cualquier lectura masiva: reportes, exportaciones, etc.
+     */
+    @Transactional
+    public void recorrerPedidosPorFecha(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta, Consumer<Pedido> consumidor) {
+        try (Stream<Pedido> pedidos = pedidoRepository.streamByFechaBetweenWithDetalles(fechaDesde, fechaHasta)) {
+            pedidos.forEach(pedido -> {
+                consumidor.accept(pedido);
+                entityManager.detach(pedido);
+            });
         }
+    }
 
-        // Datos
-        int rowNum = 1;
-        for (Pedido pedido : pedidos) {
-            for (PedidoDetalle detalle : pedido.getDetalles()) {
-                Row row = sheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(pedido.getFecha().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-                row.createCell(1).setCellValue(detalle.getInstrumento().getInstrumento());
-                row.createCell(2).setCellValue(detalle.getInstrumento().getMarca());
-                row.createCell(3).setCellValue(detalle.getInstrumento().getModelo());
-                row.createCell(4).setCellValue(detalle.getCantidad());
-                row.createCell(5).setCellValue(detalle.getPrecioUnitario().doubleValue());
-                row.createCell(6).setCellValue(detalle.getPrecioUnitario().multiply(BigDecimal.valueOf(detalle.getCantidad())).doubleValue());
-            }
+    /**
+     * Recorre con cursor todos los pedidos con id mayor a {@code afterId}, en orden de id,
+     * desvinculando cada uno después de procesarlo (igual que {@link #recorrerPedidosPorFecha}).
+     */
+    @Transactional
+    public void recorrerPedidosDesdeId(long afterId, Consumer<Pedido> consumidor) {
+        try (Stream<Pedido> pedidos = pedidoRepository.streamByIdGreaterThanWithDetalles(afterId)) {
+            pedidos.forEach(pedido -> {
+                consumidor.accept(pedido);
+                entityManager.detach(pedido);
+            });
         }
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
-        workbook.close();
-
-        return new ByteArrayInputStream(outputStream.toByteArray());
     }
 
-
-    // Nuevo método de servicio para los datos del gráfico de barras
-    public List<Object[]> getContadorPedidosPorMesYAño() {
-        return pedidoRepository.contadorPedidosPorMesYAño();
+    /**
+     * Recorre las filas planas del reporte para el rango, leídas con cursor.
+     * Como son DTOs y no entidades, no hay nada que desvincular del contexto de persistencia.
+     */
+    @Transactional
+    public void recorrerFilasReporte(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta, Consumer<FilaReportePedidoDTO> consumidor) {
+        try (Stream<FilaReportePedidoDTO> filas = pedidoRepository.streamFilasReporte(fechaDesde, fechaHasta)) {
+            filas.forEach(consumidor);
+        }
     }
 
-    // Nuevo método de servicio para los datos del gráfico de torta
-    public List<Object[]> getCantidadesPorInstrumento() {
-        return pedidoRepository.sumaCantidadesPorInstrumento();
+    /**
+     * Genera el reporte de pedidos en Excel escribiéndolo directamente en el stream recibido.
+     */
+    @Transactional
+    public void generarReporteExcel(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta, OutputStream outputStream) throws IOException {
+        generarReporte(fechaDesde, fechaHasta, FormatoReporte.XLSX, outputStream, filas -> { });
     }
 
+    /**
+     * Igual que {@link #generarReporteExcel(ZonedDateTime, ZonedDateTime, OutputStream)}, informando
+     * a {@code progreso} la cantidad de filas de detalle escritas hasta el momento.
+     */
+    @Transactional
+    public void generarReporteExcel(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta, OutputStream outputStream,
+                                    LongConsumer progreso) throws IOException {
+        generarReporte(fechaDesde, fechaHasta, FormatoReporte.XLSX, outputStream, progreso);
+    }
 
+    /**
+     * Genera el reporte de pedidos en el formato pedido, escribiendo cada fila en el stream a medida
+     * que se lee de la base de datos. En Excel las filas pasan por un libro SXSSF con ventana de
+     * {@code ventanaFilasExcel} filas; CSV y NDJSON no guardan nada en memoria.
+     */
+    @Transactional
+    public void generarReporte(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta, FormatoReporte formato,
+                               OutputStream outputStream, LongConsumer progreso) throws IOException {
+        try (EscritorReporte escritor = EscritorReporte.crear(formato, outputStream, ventanaFilasExcel)) {
+            escritor.escribirCabecera();
+
+            // Datos: filas planas leídas con cursor, sin cargar pedidos ni instrumentos
+            long[] filas = {0};
+            recorrerFilasReporte(fechaDesde, fechaHasta, fila -> {
+                try {
+                    escritor.escribirFila(fila);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                progreso.accept(++filas[0]);
+            });
+
+            escritor.finalizar();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 }
-
-
-
-
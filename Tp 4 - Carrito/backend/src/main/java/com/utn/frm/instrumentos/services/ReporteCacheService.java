@@ -0,0 +1,235 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.EstadisticasCacheReporteDTO;
+import com.utn.frm.instrumentos.events.PedidoCreadoEvent;
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * ReporteCacheService.java
+ * Cache en disco de reportes de pedidos, por (fechaDesde, fechaHasta, formato).
+ * - Los rangos que terminan antes del mes actual no pueden cambiar: se guardan en forma permanente.
+ * - Los rangos que incluyen el período actual se guardan hasta que se crea un pedido dentro de ese rango.
+ * La primera vez que se pide un reporte se escribe a la vez en el cliente y en el archivo de cache.
+ * Si quien lo genera cuenta las filas, la cantidad se guarda al lado (archivo .filas) para informarla también
+ * cuando el reporte sale de la cache.
+ */
+@Service
+public class ReporteCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReporteCacheService.class);
+    private static final ZoneId ZONA = ZoneId.of("America/Argentina/Buenos_Aires");
+    private static final String EXTENSION_FILAS = ".filas";
+
+    /**
+     * Escribe un reporte completo en el stream recibido.
+     */
+    @FunctionalInterface
+    public interface GeneradorReporte {
+        void generar(OutputStream out) throws IOException;
+    }
+
+    @Value("${app.reportes.cache.directorio:${java.io.tmpdir}/reportes-cache}")
+    private String directorio;
+
+    private Path directorioCerrados;
+    private Path directorioAbiertos;
+
+    // Reportes de rangos abiertos vigentes: nombre de archivo -> rango cubierto
+    private final Map<String, RangoCacheado> abiertos = new ConcurrentHashMap<>();
+    // Se incrementa en cada invalidación; un reporte generado mientras cambió no se guarda
+    private final AtomicLong versionInvalidacion = new AtomicLong();
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong bytesServidos = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path base = Paths.get(directorio);
+        directorioCerrados = Files.createDirectories(base.resolve("cerrados"));
+        directorioAbiertos = Files.createDirectories(base.resolve("abiertos"));
+        // Los reportes abiertos de una ejecución anterior pueden estar desactualizados
+        try (Stream<Path> viejos = Files.list(directorioAbiertos)) {
+            viejos.forEach(this::borrar);
+        }
+        log.info("Cache de reportes en {}", base);
+    }
+
+    /**
+     * Escribe en {@code destino} el reporte del rango: desde la cache si está disponible o
+     * generándolo con {@code generador} y guardándolo para las próximas solicitudes.
+     */
+    public void servir(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta, String formato,
+                       OutputStream destino, GeneradorReporte generador) throws IOException {
+        servir(fechaDesde, fechaHasta, formato, destino, generador, null);
+    }
+
+    /**
+     * Igual que el anterior para un generador que va dejando en {@code filas} las filas escritas: desde la cache
+     * se informa la cantidad guardada. Si el reporte está en cache sin su cantidad de filas, se vuelve a generar.
+     */
+    public void servir(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta, String formato,
+                       OutputStream destino, GeneradorReporte generador, AtomicLong filas) throws IOException {
+        boolean cerrado = esPeriodoCerrado(fechaHasta);
+        String nombre = nombreArchivo(fechaDesde, fechaHasta, formato);
+        Path archivo = (cerrado ? directorioCerrados : directorioAbiertos).resolve(nombre);
+        Path archivoFilas = archivoFilas(archivo);
+
+        if (cerrado || abiertos.containsKey(nombre)) {
+            try {
+                if (filas != null) {
+                    filas.set(Long.parseLong(Files.readString(archivoFilas).trim()));
+                }
+                long bytes = Files.copy(archivo, destino);
+                aciertos.incrementAndGet();
+                bytesServidos.addAndGet(bytes);
+                return;
+            } catch (NoSuchFileException e) {
+                // No estaba en cache (o sin su cantidad de filas) o se invalidó recién: se genera
+            }
+        }
+
+        fallos.incrementAndGet();
+        long version = versionInvalidacion.get();
+        Path temporal = Files.createTempFile(archivo.getParent(), nombre, ".tmp");
+        try {
+            try (OutputStream archivoOut = Files.newOutputStream(temporal);
+                 OutputStream tee = new TeeOutputStream(CloseShieldOutputStream.wrap(destino), archivoOut)) {
+                generador.generar(tee);
+            }
+            if (cerrado) {
+                guardarFilas(archivoFilas, filas);
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            }
+            synchronized (this) {
+                if (version == versionInvalidacion.get()) {
+                    guardarFilas(archivoFilas, filas);
+                    Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    abiertos.put(nombre, new RangoCacheado(fechaDesde, fechaHasta, archivo));
+                } else {
+                    borrar(temporal);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            borrar(temporal);
+            throw e;
+        }
+    }
+
+    /**
+     * Descarta los reportes abiertos cuyo rango contiene al pedido nuevo, una vez confirmado el commit.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPedidoCreado(PedidoCreadoEvent evento) {
+        invalidar(evento.getPedido().getFecha());
+    }
+
+    public synchronized void invalidar(ZonedDateTime fecha) {
+        versionInvalidacion.incrementAndGet();
+        abiertos.entrySet().removeIf(entrada -> {
+            RangoCacheado rango = entrada.getValue();
+            if (fecha.isBefore(rango.fechaDesde) || fecha.isAfter(rango.fechaHasta)) {
+                return false;
+            }
+            borrar(rango.archivo);
+            borrar(archivoFilas(rango.archivo));
+            return true;
+        });
+    }
+
+    public EstadisticasCacheReporteDTO obtenerEstadisticas() throws IOException {
+        EstadisticasCacheReporteDTO dto = new EstadisticasCacheReporteDTO();
+        long a = aciertos.get();
+        long f = fallos.get();
+        dto.setAciertos(a);
+        dto.setFallos(f);
+        dto.setTasaAciertos(a + f == 0 ? 0 : (double) a / (a + f));
+        dto.setBytesServidosDesdeCache(bytesServidos.get());
+        dto.setEntradasInvalidables(abiertos.size());
+        long permanentes = 0;
+        long bytes = 0;
+        try (Stream<Path> archivos = Files.list(directorioCerrados)) {
+            for (Path archivo : (Iterable<Path>) archivos::iterator) {
+                if (!archivo.toString().endsWith(".tmp") && !archivo.toString().endsWith(EXTENSION_FILAS)) {
+                    permanentes++;
+                    bytes += Files.size(archivo);
+                }
+            }
+        }
+        for (RangoCacheado rango : abiertos.values()) {
+            bytes += Files.exists(rango.archivo) ? Files.size(rango.archivo) : 0;
+        }
+        dto.setEntradasPermanentes(permanentes);
+        dto.setBytesEnDisco(bytes);
+        return dto;
+    }
+
+    // Un rango está cerrado si termina antes del primer día del mes actual
+    private boolean esPeriodoCerrado(ZonedDateTime fechaHasta) {
+        ZonedDateTime inicioMesActual = ZonedDateTime.now(ZONA).withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
+        return fechaHasta.isBefore(inicioMesActual);
+    }
+
+    private String nombreArchivo(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta, String formato) {
+        return fechaDesde.toInstant().toEpochMilli() + "_" + fechaHasta.toInstant().toEpochMilli() + "." + formato;
+    }
+
+    private static Path archivoFilas(Path archivo) {
+        return archivo.resolveSibling(archivo.getFileName() + EXTENSION_FILAS);
+    }
+
+    // Sin cantidad de filas se borra la anterior, que podría no corresponder al reporte nuevo
+    private void guardarFilas(Path archivoFilas, AtomicLong filas) throws IOException {
+        if (filas == null) {
+            borrar(archivoFilas);
+        } else {
+            Path temporal = Files.createTempFile(archivoFilas.getParent(), archivoFilas.getFileName().toString(), ".tmp");
+            Files.writeString(temporal, Long.toString(filas.get()));
+            Files.move(temporal, archivoFilas, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private void borrar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar {}: {}", archivo, e.getMessage());
+        }
+    }
+
+    private static class RangoCacheado {
+        private final ZonedDateTime fechaDesde;
+        private final ZonedDateTime fechaHasta;
+        private final Path archivo;
+
+        private RangoCacheado(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta, Path archivo) {
+            this.fechaDesde = fechaDesde;
+            this.fechaHasta = fechaHasta;
+            this.archivo = archivo;
+        }
+    }
+}
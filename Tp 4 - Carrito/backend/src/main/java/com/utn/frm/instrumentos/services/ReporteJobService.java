@@ -0,0 +1,218 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.ReporteJobDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ReporteJobService.java
+ * Genera reportes de pedidos en segundo plano.
+ * - Cada solicitud crea un trabajo que corre en un pool acotado y escribe el .xlsx en un directorio de spool.
+ * - Solicitudes idénticas (mismo rango) mientras el trabajo está pendiente o en proceso se unifican en un solo trabajo.
+ * - Los archivos terminados se borran cuando vence su TTL.
+ */
+@Service
+public class ReporteJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReporteJobService.class);
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String EN_PROCESO = "EN_PROCESO";
+    public static final String COMPLETADO = "COMPLETADO";
+    public static final String FALLIDO = "FALLIDO";
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ReporteCacheService reporteCacheService;
+
+    @Value("${app.reportes.jobs.directorio:${java.io.tmpdir}/reportes-pedidos}")
+    private String directorio;
+
+    @Value("${app.reportes.jobs.hilos:2}")
+    private int hilos;
+
+    @Value("${app.reportes.jobs.capacidad-cola:20}")
+    private int capacidadCola;
+
+    @Value("${app.reportes.jobs.ttl-minutos:30}")
+    private long ttlMinutos;
+
+    private Path directorioSpool;
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, ReporteJob> jobs = new ConcurrentHashMap<>();
+    // Rango solicitado -> id del trabajo pendiente o en proceso para ese rango
+    private final Map<String, String> jobsActivosPorRango = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        directorioSpool = Files.createDirectories(Paths.get(directorio));
+        AtomicInteger numeroHilo = new AtomicInteger();
+        executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                r -> {
+                    Thread t = new Thread(r, "reporte-job-" + numeroHilo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Spool de reportes en {} ({} hilos, cola de {})", directorioSpool, hilos, capacidadCola);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Encola un reporte para el rango indicado. Si ya hay un trabajo pendiente o en proceso
+     * para el mismo rango, devuelve ese trabajo en lugar de crear otro.
+     * @throws RejectedExecutionException si la cola de trabajos está llena.
+     */
+    public ReporteJobDTO solicitar(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta) {
+        String claveRango = fechaDesde.toInstant() + "|" + fechaHasta.toInstant();
+        boolean[] creado = new boolean[1];
+        // Se encola dentro del mapeo: si el executor lo rechaza, la excepción sale de computeIfAbsent y el
+        // rango nunca queda asociado a un trabajo que no va a correr (otro pedido no puede reutilizarlo)
+        String jobId = jobsActivosPorRango.computeIfAbsent(claveRango, k -> {
+            ReporteJob nuevo = new ReporteJob(UUID.randomUUID().toString(), fechaDesde, fechaHasta);
+            jobs.put(nuevo.id, nuevo);
+            try {
+                executor.execute(() -> ejecutar(nuevo, claveRango));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(nuevo.id);
+                throw e;
+            }
+            creado[0] = true;
+            return nuevo.id;
+        });
+
+        ReporteJob job = jobs.get(jobId);
+        if (job == null) {
+            // Terminó y se limpió entre las dos lecturas: se vuelve a pedir
+            return solicitar(fechaDesde, fechaHasta);
+        }
+        if (!creado[0]) {
+            log.debug("Reutilizando trabajo {} para el rango {}", jobId, claveRango);
+        }
+        return job.toDTO();
+    }
+
+    public Optional<ReporteJobDTO> consultar(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(ReporteJob::toDTO);
+    }
+
+    /**
+     * Devuelve el archivo del trabajo solo si terminó correctamente y todavía existe en el spool.
+     */
+    public Optional<Path> obtenerArchivo(String jobId) {
+        ReporteJob job = jobs.get(jobId);
+        if (job == null || !COMPLETADO.equals(job.estado) || !Files.exists(job.archivo)) {
+            return Optional.empty();
+        }
+        return Optional.of(job.archivo);
+    }
+
+    private void ejecutar(ReporteJob job, String claveRango) {
+        job.estado = EN_PROCESO;
+        Path temporal = directorioSpool.resolve(job.id + ".xlsx.tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporal)) {
+                reporteCacheService.servir(job.fechaDesde, job.fechaHasta, "xlsx", out,
+                        destino -> pedidoService.generarReporteExcel(job.fechaDesde, job.fechaHasta, destino, job.filasEscritas::set),
+                        job.filasEscritas);
+            }
+            Files.move(temporal, job.archivo);
+            job.estado = COMPLETADO;
+            log.info("Reporte {} completado: {} filas", job.id, job.filasEscritas.get());
+        } catch (Exception e) {
+            log.error("Error generando el reporte {}: {}", job.id, e.getMessage(), e);
+            job.error = e.getMessage();
+            job.estado = FALLIDO;
+            borrar(temporal);
+        } finally {
+            job.finalizado = ZonedDateTime.now();
+            jobsActivosPorRango.remove(claveRango, job.id);
+        }
+    }
+
+    // Borra los trabajos terminados (y sus archivos) cuyo TTL ya venció
+    @Scheduled(fixedDelayString = "${app.reportes.jobs.limpieza-ms:60000}")
+    public void limpiarVencidos() {
+        ZonedDateTime limite = ZonedDateTime.now().minus(Duration.ofMinutes(ttlMinutos));
+        jobs.values().removeIf(job -> {
+            if (job.finalizado == null || job.finalizado.isAfter(limite)) {
+                return false;
+            }
+            borrar(job.archivo);
+            log.debug("Reporte {} vencido y eliminado", job.id);
+            return true;
+        });
+    }
+
+    private void borrar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar {}: {}", archivo, e.getMessage());
+        }
+    }
+
+    private class ReporteJob {
+        private final String id;
+        private final ZonedDateTime fechaDesde;
+        private final ZonedDateTime fechaHasta;
+        private final ZonedDateTime creado = ZonedDateTime.now();
+        private final Path archivo;
+        private final AtomicLong filasEscritas = new AtomicLong();
+        private volatile String estado = PENDIENTE;
+        private volatile String error;
+        private volatile ZonedDateTime finalizado;
+
+        private ReporteJob(String id, ZonedDateTime fechaDesde, ZonedDateTime fechaHasta) {
+            this.id = id;
+            this.fechaDesde = fechaDesde;
+            this.fechaHasta = fechaHasta;
+            this.archivo = directorioSpool.resolve(id + ".xlsx");
+        }
+
+        private ReporteJobDTO toDTO() {
+            ReporteJobDTO dto = new ReporteJobDTO();
+            dto.setId(id);
+            dto.setFechaDesde(fechaDesde);
+            dto.setFechaHasta(fechaHasta);
+            dto.setEstado(estado);
+            dto.setFilasEscritas(filasEscritas.get());
+            dto.setError(error);
+            dto.setCreado(creado);
+            dto.setFinalizado(finalizado);
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.utn.frm.instrumentos.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ReporteMensualService.java
+ * Reporte de pedidos dividido por mes, para rangos amplios.
+ * Cada mes (shard) se consulta y se escribe en paralelo en un pool acotado, con su propia transacción.
+ * El rango admite como máximo {@code app.reportes.mensual.max-meses} meses y la cola del pool es
+ * acotada: si no hay lugar para los meses de un reporte, se rechaza en vez de acumular tareas.
+ * - HOJAS: un solo libro con una hoja por mes.
+ * - ZIP: un .zip con un libro por mes.
+ * Las filas de cada mes salen en el mismo orden que en el reporte de una sola hoja, y las hojas de
+ * resumen se arman combinando los totales que cada mes acumuló mientras escribía sus filas.
+ */
+@Service
+public class ReporteMensualService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReporteMensualService.class);
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    public enum Modo { HOJAS, ZIP }
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Value("${app.reportes.mensual.paralelismo:4}")
+    private int paralelismo;
+
+    @Value("${app.reportes.mensual.max-meses:36}")
+    private int maxMeses;
+
+    @Value("${app.reportes.mensual.capacidad-cola:72}")
+    private int capacidadCola;
+
+    @Value("${app.reportes.excel.ventana-filas:100}")
+    private int ventanaFilasExcel;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        if (capacidadCola < maxMeses) {
+            // Con una cola más chica un reporte del rango máximo no entraría nunca
+            throw new IllegalStateException("app.reportes.mensual.capacidad-cola (" + capacidadCola
+                    + ") no puede ser menor que app.reportes.mensual.max-meses (" + maxMeses + ")");
+        }
+        AtomicInteger numeroHilo = new AtomicInteger();
+        executor = new ThreadPoolExecutor(paralelismo, paralelismo, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                r -> {
+                    Thread t = new Thread(r, "reporte-mes-" + numeroHilo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Verifica el rango antes de empezar a responder, para poder contestar con un error en lugar del reporte.
+     * @throws IllegalArgumentException si el rango abarca más de max-meses meses.
+     * @throws RejectedExecutionException si en la cola del pool no hay lugar para todos los meses del rango.
+     */
+    public void validar(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta) {
+        long meses = validarMeses(fechaDesde, fechaHasta);
+        if (executor.getQueue().remainingCapacity() < meses) {
+            throw new RejectedExecutionException("Hay demasiados reportes en proceso, intente nuevamente en unos segundos.");
+        }
+    }
+
+    public void generar(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta, Modo modo, OutputStream outputStream) throws IOException {
+        validarMeses(fechaDesde, fechaHasta);
+        List<Shard> shards = dividirPorMes(fechaDesde, fechaHasta);
+        log.debug("Reporte mensual {} de {} a {}: {} meses", modo, fechaDesde, fechaHasta, shards.size());
+        if (modo == Modo.ZIP) {
+            generarZip(shards, outputStream);
+        } else {
+            generarHojas(shards, outputStream);
+        }
+    }
+
+    private long validarMeses(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta) {
+        long meses = contarMeses(fechaDesde, fechaHasta);
+        if (meses > maxMeses) {
+            throw new IllegalArgumentException("El reporte mensual admite como máximo " + maxMeses
+                    + " meses y el rango pedido abarca " + meses);
+        }
+        return meses;
+    }
+
+    /**
+     * Un libro con una hoja por mes. Las hojas se crean en orden en este hilo y después cada mes
+     * se consulta en paralelo desde el pool. SXSSFWorkbook no es thread-safe, así que la escritura
+     * de cada fila (createRow y sus celdas, que pueden volcar filas al archivo temporal) se hace
+     * sincronizada sobre el libro; lo que se paraleliza es la consulta de cada mes.
+     */
+    private void generarHojas(List<Shard> shards, OutputStream outputStream) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ventanaFilasExcel);
+        workbook.setCompressTempFiles(true);
+        try {
+            List<Sheet> hojas = new ArrayList<>();
+            for (Shard shard : shards) {
+                Sheet hoja = workbook.createSheet(shard.nombre());
+                EscritorReporteExcel.escribirCabecera(hoja.createRow(0));
+                hojas.add(hoja);
+            }
+            if (hojas.isEmpty()) {
+                // Rango vacío: el libro necesita al menos una hoja
+                EscritorReporteExcel.escribirCabecera(workbook.createSheet("Reporte Pedidos").createRow(0));
+            }
+
+            List<Future<?>> tareas = new ArrayList<>();
+            List<ResumenReporte> resumenes = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++) {
+                Shard shard = shards.get(i);
+                Sheet hoja = hojas.get(i);
+                ResumenReporte resumenMes = new ResumenReporte();
+                resumenes.add(resumenMes);
+                encolar(tareas, () -> {
+                    int[] rowNum = {1};
+                    pedidoService.recorrerFilasReporte(shard.desde, shard.hasta, fila -> {
+                        synchronized (workbook) {
+                            EscritorReporteExcel.escribirFila(hoja.createRow(rowNum[0]++), fila);
+                        }
+                        resumenMes.acumular(fila);
+                    });
+                    return null;
+                });
+            }
+            esperar(tareas);
+
+            ResumenReporte resumen = new ResumenReporte();
+            resumenes.forEach(resumen::combinar);
+            resumen.escribirHojas(workbook);
+
+            workbook.write(outputStream);
+            outputStream.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Un .zip con un libro por mes. Cada libro se genera en paralelo en un archivo temporal y
+     * después se agregan al zip en orden cronológico.
+     */
+    private void generarZip(List<Shard> shards, OutputStream outputStream) throws IOException {
+        List<Path> archivos = new ArrayList<>();
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (Shard shard : shards) {
+                Path archivo = Files.createTempFile("reporte-" + shard.nombre() + "-", ".xlsx");
+                archivos.add(archivo);
+                encolar(tareas, () -> {
+                    try (OutputStream out = Files.newOutputStream(archivo)) {
+                        pedidoService.generarReporte(shard.desde, shard.hasta, FormatoReporte.XLSX, out, filas -> { });
+                    }
+                    return null;
+                });
+            }
+            esperar(tareas);
+
+            ZipOutputStream zip = new ZipOutputStream(outputStream);
+            for (int i = 0; i < shards.size(); i++) {
+                zip.putNextEntry(new ZipEntry("reporte_pedidos_" + shards.get(i).nombre() + ".xlsx"));
+                Files.copy(archivos.get(i), zip);
+                zip.closeEntry();
+            }
+            zip.finish();
+            outputStream.flush();
+        } finally {
+            for (Path archivo : archivos) {
+                Files.deleteIfExists(archivo);
+            }
+        }
+    }
+
+    // Si el pool rechaza un mes se cancelan los ya encolados de este reporte antes de relanzar el rechazo
+    private void encolar(List<Future<?>> tareas, Callable<?> tarea) {
+        try {
+            tareas.add(executor.submit(tarea));
+        } catch (RejectedExecutionException e) {
+            tareas.forEach(t -> t.cancel(true));
+            throw e;
+        }
+    }
+
+    // Espera todas las tareas; si alguna falla cancela el resto y relanza el error
+    private void esperar(List<Future<?>> tareas) throws IOException {
+        try {
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } catch (InterruptedException e) {
+            tareas.forEach(t -> t.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Generación del reporte interrumpida", e);
+        } catch (ExecutionException e) {
+            tareas.forEach(t -> t.cancel(true));
+            Throwable causa = e.getCause();
+            if (causa instanceof IOException) {
+                throw (IOException) causa;
+            }
+            if (causa instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) causa).getCause();
+            }
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            throw new IOException(causa);
+        }
+    }
+
+    /**
+     * Divide [fechaDesde, fechaHasta] en meses calendario sin superposición. Como la consulta usa
+     * BETWEEN (extremos incluidos), cada mes termina un microsegundo antes del inicio del siguiente,
+     * que es la precisión de la columna fecha.
+     */
+    static long contarMeses(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta) {
+        if (fechaDesde.isAfter(fechaHasta)) {
+            return 0;
+        }
+        return ChronoUnit.MONTHS.between(YearMonth.from(fechaDesde), YearMonth.from(fechaHasta)) + 1;
+    }
+
+    static List<Shard> dividirPorMes(ZonedDateTime fechaDesde, ZonedDateTime fechaHasta) {
+        List<Shard> shards = new ArrayList<>();
+        ZonedDateTime inicio = fechaDesde;
+        while (!inicio.isAfter(fechaHasta)) {
+            ZonedDateTime inicioMesSiguiente = inicio.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            ZonedDateTime fin = inicioMesSiguiente.minus(1, ChronoUnit.MICROS);
+            if (fin.isAfter(fechaHasta)) {
+                fin = fechaHasta;
+            }
+            shards.add(new Shard(inicio, fin));
+            inicio = inicioMesSiguiente;
+        }
+        return shards;
+    }
+
+    static class Shard {
+        final ZonedDateTime desde;
+        final ZonedDateTime hasta;
+
+        Shard(ZonedDateTime desde, ZonedDateTime hasta) {
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        String nombre() {
+            return desde.format(FORMATO_MES);
+        }
+    }
+}
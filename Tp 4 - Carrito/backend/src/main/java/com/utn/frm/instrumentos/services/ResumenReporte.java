@@ -0,0 +1,78 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.FilaReportePedidoDTO;
+import com.utn.frm.instrumentos.util.AcumuladorPorClave;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * ResumenReporte.java
+ * Totales del reporte de pedidos calculados en la misma pasada que escribe las filas de detalle:
+ * cantidad y recaudación por instrumento, por día y por categoría, más el total general.
+ * Las filas no se guardan ni se vuelven a leer; solo se acumulan en mapas de claves primitivas.
+ */
+public class ResumenReporte {
+
+    private final AcumuladorPorClave porInstrumento = new AcumuladorPorClave();
+    private final AcumuladorPorClave porDia = new AcumuladorPorClave(64);
+    private final AcumuladorPorClave porCategoria = new AcumuladorPorClave();
+    private long cantidadTotal;
+    private long centavosTotal;
+
+    public void acumular(FilaReportePedidoDTO fila) {
+        long cantidad = fila.getCantidad();
+        long centavos = aCentavos(fila.getSubtotal());
+        porInstrumento.sumar(fila.getInstrumentoId(), fila.getInstrumento(), cantidad, centavos);
+        porDia.sumar(fila.getFecha().toLocalDate().toEpochDay(), null, cantidad, centavos);
+        porCategoria.sumar(fila.getCategoriaId(), fila.getCategoria(), cantidad, centavos);
+        cantidadTotal += cantidad;
+        centavosTotal += centavos;
+    }
+
+    // Suma los totales de otro resumen (el de otro mes en el reporte mensual)
+    public void combinar(ResumenReporte otro) {
+        porInstrumento.combinar(otro.porInstrumento);
+        porDia.combinar(otro.porDia);
+        porCategoria.combinar(otro.porCategoria);
+        cantidadTotal += otro.cantidadTotal;
+        centavosTotal += otro.centavosTotal;
+    }
+
+    public void escribirHojas(Workbook workbook) {
+        escribirHoja(workbook.createSheet("Resumen por instrumento"), "Instrumento", porInstrumento, false);
+        escribirHoja(workbook.createSheet("Resumen por día"), "Día", porDia, true);
+        escribirHoja(workbook.createSheet("Resumen por categoría"), "Categoría", porCategoria, false);
+    }
+
+    private void escribirHoja(Sheet hoja, String titulo, AcumuladorPorClave acumulador, boolean claveEsDia) {
+        int rowNum = 0;
+        Row cabecera = hoja.createRow(rowNum++);
+        cabecera.createCell(0).setCellValue(titulo);
+        cabecera.createCell(1).setCellValue("Cantidad");
+        cabecera.createCell(2).setCellValue("Recaudación");
+
+        for (int indice : acumulador.indicesOrdenadosPorClave()) {
+            Row row = hoja.createRow(rowNum++);
+            String etiqueta = claveEsDia
+                    ? LocalDate.ofEpochDay(acumulador.clave(indice)).toString()
+                    : acumulador.etiqueta(indice);
+            row.createCell(0).setCellValue(etiqueta);
+            row.createCell(1).setCellValue(acumulador.cantidad(indice));
+            row.createCell(2).setCellValue(acumulador.centavos(indice) / 100.0);
+        }
+
+        Row total = hoja.createRow(rowNum);
+        total.createCell(0).setCellValue("Total general");
+        total.createCell(1).setCellValue(cantidadTotal);
+        total.createCell(2).setCellValue(centavosTotal / 100.0);
+    }
+
+    private static long aCentavos(BigDecimal importe) {
+        return importe.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
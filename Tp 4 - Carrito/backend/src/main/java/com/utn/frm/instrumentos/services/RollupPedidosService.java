@@ -0,0 +1,232 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.entities.Pedido;
+import com.utn.frm.instrumentos.entities.PedidoDetalle;
+import com.utn.frm.instrumentos.repositories.PedidoRepository;
+import com.utn.frm.instrumentos.repositories.PedidoRollupMensualRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * RollupPedidosService.java
+ * Mantiene la tabla pedido_rollup_mensual (pedidos, importe y unidades por mes) a medida que se crean pedidos.
+ * - Cada vía de alta (crearPedido, lotes, ingesta asíncrona) llama a {@link #registrar} dentro de su transacción.
+ *   Los incrementos se juntan por mes y se aplican con un upsert por mes justo antes del commit: el pedido y
+ *   su rollup se confirman o se revierten juntos, y la fila del mes queda bloqueada el menor tiempo posible.
+ * - {@link #reconstruir()} recalcula la tabla desde cero (carga inicial, o si alguna vez se desfasa).
+ */
+@Service
+public class RollupPedidosService {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupPedidosService.class);
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private static final String SQL_UPSERT_MYSQL =
+            "INSERT INTO pedido_rollup_mensual (mes, cantidad_pedidos, total, unidades) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE cantidad_pedidos = cantidad_pedidos + VALUES(cantidad_pedidos), " +
+            "total = total + VALUES(total), unidades = unidades + VALUES(unidades)";
+
+    // MERGE estándar, para las bases que no son MySQL (H2 en los tests)
+    private static final String SQL_UPSERT_MERGE =
+            "MERGE INTO pedido_rollup_mensual r USING (VALUES (CAST(? AS VARCHAR(7)), CAST(? AS BIGINT), " +
+            "CAST(? AS DECIMAL(14,2)), CAST(? AS BIGINT))) AS n (mes, cantidad_pedidos, total, unidades) ON r.mes = n.mes " +
+            "WHEN MATCHED THEN UPDATE SET cantidad_pedidos = r.cantidad_pedidos + n.cantidad_pedidos, " +
+            "total = r.total + n.total, unidades = r.unidades + n.unidades " +
+            "WHEN NOT MATCHED THEN INSERT (mes, cantidad_pedidos, total, unidades) " +
+            "VALUES (n.mes, n.cantidad_pedidos, n.total, n.unidades)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private PedidoRollupMensualRepository rollupRepository;
+
+    // Al arrancar, si el rollup está vacío pero ya hay pedidos, se carga desde el historial
+    @Value("${app.pedidos.rollup.reconstruir-al-iniciar:true}")
+    private boolean reconstruirAlIniciar;
+
+    private String sqlUpsert;
+
+    @PostConstruct
+    public void init() {
+        String base = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+        boolean mysql = base != null && (base.contains("MySQL") || base.contains("MariaDB"));
+        sqlUpsert = mysql ? SQL_UPSERT_MYSQL : SQL_UPSERT_MERGE;
+    }
+
+    public void registrar(Pedido pedido) {
+        registrar(pedido.getFecha(), pedido.getTotal(), unidades(pedido.getDetalles()));
+    }
+
+    public void registrar(Collection<Pedido> pedidos) {
+        pedidos.forEach(this::registrar);
+    }
+
+    /**
+     * Suma un pedido al mes de su fecha. Debe llamarse dentro de la transacción que guarda el pedido.
+     */
+    public void registrar(ZonedDateTime fecha, BigDecimal total, long unidades) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("El rollup mensual se actualiza dentro de la transacción que guarda el pedido");
+        }
+        incrementosDeLaTransaccion().sumar(mesDe(fecha), total, unidades);
+    }
+
+    // Las sincronizaciones se suspenden con su transacción, así una transacción anidada (REQUIRES_NEW) tiene las suyas
+    private Incrementos incrementosDeLaTransaccion() {
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            if (sincronizacion instanceof Incrementos && ((Incrementos) sincronizacion).servicio() == this) {
+                return (Incrementos) sincronizacion;
+            }
+        }
+        Incrementos incrementos = new Incrementos();
+        TransactionSynchronizationManager.registerSynchronization(incrementos);
+        return incrementos;
+    }
+
+    // Meses en orden: dos transacciones que tocan los mismos meses toman los locks en el mismo orden
+    private void aplicar(Map<String, Totales> porMes) {
+        if (porMes.isEmpty()) {
+            return;
+        }
+        porMes.forEach((mes, totales) -> {
+            Object[] fila = {mes, totales.pedidos, totales.total, totales.unidades};
+            try {
+                jdbcTemplate.update(sqlUpsert, fila);
+            } catch (DuplicateKeyException e) {
+                // Solo con MERGE: otra transacción creó la fila del mes al mismo tiempo; ahora existe y se actualiza
+                jdbcTemplate.update(sqlUpsert, fila);
+            }
+        });
+    }
+
+    /**
+     * Recalcula el rollup completo desde pedido y pedido_detalle en una transacción.
+     * El DELETE va primero: bloquea las filas del rollup, así los pedidos que se estén creando esperan
+     * y se suman después del commit en vez de perderse o contarse dos veces.
+     * @return cantidad de meses con pedidos.
+     */
+    public int reconstruir() {
+        long inicio = System.currentTimeMillis();
+        Integer meses = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("DELETE FROM pedido_rollup_mensual");
+            Map<String, Totales> porMes = new TreeMap<>();
+            for (Object[] fila : pedidoRepository.totalesPorHora()) {
+                Totales totales = porMes.computeIfAbsent(mes(fila), m -> new Totales());
+                totales.pedidos += ((Number) fila[4]).longValue();
+                totales.total = totales.total.add((BigDecimal) fila[5]);
+            }
+            for (Object[] fila : pedidoRepository.unidadesPorHora()) {
+                porMes.computeIfAbsent(mes(fila), m -> new Totales()).unidades += ((Number) fila[4]).longValue();
+            }
+            aplicar(porMes);
+            return porMes.size();
+        });
+        log.info("Rollup mensual de pedidos reconstruido: {} meses en {} ms", meses, System.currentTimeMillis() - inicio);
+        return meses;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruirSiFalta() {
+        if (reconstruirAlIniciar && rollupRepository.count() == 0 && pedidoRepository.count() > 0) {
+            reconstruir();
+        }
+    }
+
+    // [mes, cantidad de pedidos] en orden cronológico, para el gráfico de barras
+    public List<Object[]> contadorPedidosPorMes() {
+        return rollupRepository.contadorPedidosPorMes();
+    }
+
+    // Igual que el anterior pero solo de los meses entre desde y hasta (inclusive); un extremo null no acota
+    public List<Object[]> contadorPedidosPorMes(YearMonth desde, YearMonth hasta) {
+        if (desde == null && hasta == null) {
+            return rollupRepository.contadorPedidosPorMes();
+        }
+        String mesDesde = desde == null ? "0000-00" : desde.format(FORMATO_MES);
+        String mesHasta = hasta == null ? "9999-99" : hasta.format(FORMATO_MES);
+        return rollupRepository.contadorPedidosEntre(mesDesde, mesHasta);
+    }
+
+    // Mes (yyyy-MM) del pedido en la hora de Argentina, igual que los días de los gráficos y de la analítica
+    static String mesDe(ZonedDateTime fecha) {
+        return fecha.withZoneSameInstant(AnaliticaVentasService.ZONA).format(FORMATO_MES);
+    }
+
+    /**
+     * Mes de una fila [año, mes, día, hora, ...] de la base. En MySQL Hibernate guarda fecha normalizada a UTC
+     * (la columna no tiene zona horaria), que es lo que ven year()/month()/day()/hour().
+     */
+    private static String mes(Object[] fila) {
+        return mesDe(horaUtc(fila).atZone(ZoneOffset.UTC));
+    }
+
+    static LocalDateTime horaUtc(Object[] fila) {
+        return LocalDateTime.of(((Number) fila[0]).intValue(), ((Number) fila[1]).intValue(),
+                ((Number) fila[2]).intValue(), ((Number) fila[3]).intValue(), 0);
+    }
+
+    private static long unidades(List<PedidoDetalle> detalles) {
+        long unidades = 0;
+        for (PedidoDetalle detalle : detalles) {
+            unidades += detalle.getCantidad();
+        }
+        return unidades;
+    }
+
+    private static class Totales {
+        private long pedidos;
+        private BigDecimal total = BigDecimal.ZERO;
+        private long unidades;
+    }
+
+    // Incrementos pendientes de la transacción actual, agrupados por mes
+    private class Incrementos implements TransactionSynchronization {
+        private final Map<String, Totales> porMes = new TreeMap<>();
+
+        private void sumar(String mes, BigDecimal total, long unidades) {
+            Totales totales = porMes.computeIfAbsent(mes, m -> new Totales());
+            totales.pedidos++;
+            totales.total = totales.total.add(total);
+            totales.unidades += unidades;
+        }
+
+        private RollupPedidosService servicio() {
+            return RollupPedidosService.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            aplicar(porMes);
+        }
+    }
+}
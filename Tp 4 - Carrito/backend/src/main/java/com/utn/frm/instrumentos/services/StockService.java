@@ -0,0 +1,386 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.repositories.PedidoRepository;
+import com.utn.frm.instrumentos.util.ContadorFragmentado;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * StockService.java
+ * Stock de instrumentos con reservas en memoria, para que crear un pedido nunca espere un lock de fila.
+ * - El disponible de cada instrumento vive en un {@link ContadorFragmentado}: los pedidos concurrentes
+ *   de un mismo instrumento descuentan de celdas distintas con compare-and-set y nunca venden de más.
+ * - Al crear el pedido se reservan las unidades. La reserva vence si el pago no se confirma dentro del
+ *   TTL (preferencia de Mercado Pago abandonada); crear la preferencia la renueva.
+ * - Las unidades confirmadas se descuentan de la columna stock con un UPDATE en lote periódico.
+ * - El vencimiento de cada reserva se guarda en el pedido (reserva_vence): al arrancar se vuelven a apartar
+ *   las unidades de los pedidos con reserva vigente, así un reinicio no las devuelve a la venta.
+ * Los instrumentos con stock null no llevan control de stock.
+ */
+@Service
+public class StockService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockService.class);
+
+    private static final String SQL_DESCONTAR_STOCK =
+            "UPDATE instrumentos SET stock = stock - ? WHERE id = ? AND stock IS NOT NULL";
+
+    private static final String SQL_LINEAS_CON_STOCK =
+            "SELECT COUNT(*) FROM pedido_detalle d JOIN instrumentos i ON i.id = d.instrumento_id " +
+            "WHERE d.pedido_id = ? AND i.stock IS NOT NULL";
+
+    // Reserva de los pedidos sin instrumentos con control de stock: se comparte y no se registra
+    private static final Reserva SIN_STOCK = new Reserva(0, List.of(), Instant.MAX);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Value("${app.stock.fragmentos:8}")
+    private int fragmentos;
+
+    @Value("${app.stock.reserva-ttl-minutos:30}")
+    private long reservaTtlMinutos;
+
+    // Solo instrumentos con control de stock; se cargan la primera vez que se reservan
+    private final Map<Long, EstadoStock> estados = new ConcurrentHashMap<>();
+    private final Map<Long, Reserva> reservas = new ConcurrentHashMap<>();
+    private final Map<Long, Reserva> reservasPorPedido = new ConcurrentHashMap<>();
+    private final AtomicLong secuenciaReservas = new AtomicLong();
+
+    /**
+     * Reserva las cantidades pedidas (todo o nada). Si ningún instrumento lleva control de stock devuelve
+     * una reserva vacía compartida, que no ocupa memoria hasta el vencimiento.
+     * @param stockEnBase stock guardado de un instrumento, para los que todavía no están en memoria.
+     * @throws RuntimeException si algún instrumento no tiene stock suficiente (informa todos juntos).
+     */
+    public Reserva reservar(Map<Long, Integer> cantidadesPorInstrumento, Function<Long, Integer> stockEnBase) {
+        List<LineaReserva> lineas = new ArrayList<>();
+        List<Long> sinStock = new ArrayList<>();
+        cantidadesPorInstrumento.forEach((instrumentoId, cantidad) -> {
+            EstadoStock estado = estado(instrumentoId, stockEnBase);
+            if (estado == null) {
+                return;
+            }
+            if (estado.disponible.tomar(cantidad)) {
+                lineas.add(new LineaReserva(estado, cantidad));
+            } else {
+                sinStock.add(instrumentoId);
+            }
+        });
+        if (!sinStock.isEmpty()) {
+            lineas.forEach(linea -> linea.estado.disponible.devolver(linea.cantidad));
+            throw new RuntimeException("Stock insuficiente para los instrumentos: " + sinStock);
+        }
+        if (lineas.isEmpty()) {
+            return SIN_STOCK;
+        }
+        Reserva reserva = new Reserva(secuenciaReservas.incrementAndGet(), lineas, vencimiento());
+        reservas.put(reserva.id, reserva);
+        return reserva;
+    }
+
+    /**
+     * Reconstruye las reservas vigentes guardadas en los pedidos. Esas unidades nunca se descontaron de la
+     * columna stock, así que se vuelven a apartar del disponible aunque no alcance.
+     */
+    @PostConstruct
+    public void restaurarReservas() {
+        Map<Long, Reserva> restauradas = new HashMap<>();
+        for (Object[] fila : pedidoRepository.lineasConReservaVigente(Instant.now())) {
+            Long pedidoId = (Long) fila[0];
+            Integer stock = (Integer) fila[2];
+            int cantidad = (Integer) fila[3];
+            EstadoStock estado = estado((Long) fila[1], id -> stock);
+            estado.disponible.quitar(cantidad);
+            restauradas.computeIfAbsent(pedidoId, id -> new Reserva(secuenciaReservas.incrementAndGet(), new ArrayList<>(), (Instant) fila[4]))
+                    .lineas.add(new LineaReserva(estado, cantidad));
+        }
+        restauradas.forEach((pedidoId, reserva) -> {
+            reservas.put(reserva.id, reserva);
+            asociar(reserva, pedidoId);
+        });
+        if (!restauradas.isEmpty()) {
+            log.info("Se restauraron {} reservas de stock vigentes", restauradas.size());
+        }
+    }
+
+    public void asociar(Reserva reserva, Long pedidoId) {
+        if (reserva == SIN_STOCK) {
+            return;
+        }
+        if (reserva.pedidoId != null) {
+            reservasPorPedido.remove(reserva.pedidoId, reserva);
+        }
+        reserva.pedidoId = pedidoId;
+        reservasPorPedido.put(pedidoId, reserva);
+    }
+
+    // Si la transacción actual se revierte, el pedido no existe y las unidades vuelven al disponible
+    public void liberarSiSeRevierte(Reserva reserva) {
+        if (reserva == SIN_STOCK || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    liberar(reserva);
+                }
+            }
+        });
+    }
+
+    public void liberar(Reserva reserva) {
+        if (reservas.remove(reserva.id) == null) {
+            return; // Ya confirmada, vencida o liberada
+        }
+        reserva.terminada = true;
+        if (reserva.pedidoId != null) {
+            reservasPorPedido.remove(reserva.pedidoId, reserva);
+        }
+        reserva.lineas.forEach(linea -> linea.estado.disponible.devolver(linea.cantidad));
+    }
+
+    /**
+     * Extiende el vencimiento de la reserva del pedido (se llama al crear la preferencia de pago).
+     * @return false si el pedido no tiene una reserva vigente.
+     */
+    public boolean renovar(Long pedidoId) {
+        Reserva reserva = reservasPorPedido.get(pedidoId);
+        if (reserva == null) {
+            return false;
+        }
+        reserva.vence = vencimiento();
+        if (!reservas.containsKey(reserva.id)) {
+            return false;
+        }
+        guardarVencimiento(pedidoId, reserva.vence);
+        return true;
+    }
+
+    /**
+     * Convierte la reserva del pedido en venta: las unidades se descuentan de la base en el próximo volcado.
+     * @return false si el pedido no tiene una reserva vigente (vencida, ya confirmada o sin control de stock).
+     */
+    public boolean confirmar(Long pedidoId) {
+        Reserva reserva = reservasPorPedido.remove(pedidoId);
+        if (reserva == null || reservas.remove(reserva.id) == null) {
+            return false;
+        }
+        reserva.terminada = true;
+        guardarVencimiento(pedidoId, null);
+        reserva.lineas.forEach(linea -> {
+            linea.estado.vendidosSinVolcar.add(linea.cantidad);
+            if (estados.get(linea.estado.instrumentoId) != linea.estado) {
+                // El estado se retiró mientras la reserva estaba vigente: volcar() ya no lo recorre
+                volcar(linea.estado);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Indica si el pedido tiene instrumentos con control de stock, es decir, si su pago necesita una reserva.
+     */
+    public boolean requiereReserva(Long pedidoId) {
+        Long lineas = jdbcTemplate.queryForObject(SQL_LINEAS_CON_STOCK, Long.class, pedidoId);
+        return lineas != null && lineas > 0;
+    }
+
+    /**
+     * Aplica en memoria un cambio de stock hecho por el administrador (valor que vio y valor nuevo).
+     * Se aplica como diferencia para no pisar las reservas vigentes ni las ventas descontadas mientras tanto.
+     */
+    public void ajustar(Long instrumentoId, Integer stockAnterior, Integer stockNuevo) {
+        if (Objects.equals(stockAnterior, stockNuevo)) {
+            return;
+        }
+        if (stockAnterior == null || stockNuevo == null) {
+            // Cambia si el instrumento lleva control de stock: se vuelve a cargar en la próxima reserva
+            retirar(instrumentoId);
+            return;
+        }
+        EstadoStock estado = estados.get(instrumentoId);
+        if (estado == null) {
+            return;
+        }
+        long diferencia = (long) stockNuevo - stockAnterior;
+        if (diferencia > 0) {
+            estado.disponible.devolver(diferencia);
+        } else {
+            estado.disponible.quitar(-diferencia);
+        }
+    }
+
+    public void olvidar(Long instrumentoId) {
+        retirar(instrumentoId);
+    }
+
+    // Disponible para vender (stock guardado menos reservas y ventas sin volcar), o null si no está en memoria
+    public Long getDisponible(Long instrumentoId) {
+        EstadoStock estado = estados.get(instrumentoId);
+        return estado == null ? null : estado.disponible.disponible();
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.limpieza-ms:60000}")
+    public void liberarVencidas() {
+        Instant ahora = Instant.now();
+        int vencidas = 0;
+        for (Reserva reserva : reservas.values()) {
+            if (reserva.vence.isBefore(ahora)) {
+                liberar(reserva);
+                vencidas++;
+            }
+        }
+        if (vencidas > 0) {
+            log.info("Se liberaron {} reservas de stock vencidas", vencidas);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.volcado-ms:5000}")
+    public void volcar() {
+        List<Object[]> descuentos = new ArrayList<>();
+        estados.forEach((instrumentoId, estado) -> {
+            long cantidad = estado.vendidosSinVolcar.sumThenReset();
+            if (cantidad != 0) {
+                descuentos.add(new Object[]{cantidad, instrumentoId});
+            }
+        });
+        if (descuentos.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(SQL_DESCONTAR_STOCK, descuentos));
+            log.debug("Stock descontado para {} instrumentos", descuentos.size());
+        } catch (DataAccessException e) {
+            log.warn("No se pudo descontar el stock de {} instrumentos: {}", descuentos.size(), e.getMostSpecificCause().getMessage());
+            for (Object[] descuento : descuentos) {
+                EstadoStock estado = estados.get((Long) descuento[1]);
+                if (estado != null) {
+                    estado.vendidosSinVolcar.add((Long) descuento[0]);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        volcar();
+    }
+
+    private EstadoStock estado(Long instrumentoId, Function<Long, Integer> stockEnBase) {
+        EstadoStock estado = estados.get(instrumentoId);
+        if (estado != null) {
+            return estado;
+        }
+        Integer stock = stockEnBase.apply(instrumentoId);
+        if (stock == null) {
+            return null;
+        }
+        return estados.computeIfAbsent(instrumentoId, id -> new EstadoStock(id, new ContadorFragmentado(stock, fragmentos)));
+    }
+
+    // Saca el estado de memoria sin perder las ventas confirmadas que todavía no se descontaron
+    private void retirar(Long instrumentoId) {
+        EstadoStock estado = estados.remove(instrumentoId);
+        if (estado != null) {
+            volcar(estado);
+        }
+    }
+
+    private void volcar(EstadoStock estado) {
+        long cantidad = estado.vendidosSinVolcar.sumThenReset();
+        if (cantidad == 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(SQL_DESCONTAR_STOCK, cantidad, estado.instrumentoId);
+        } catch (DataAccessException e) {
+            // Ya no está en memoria para reintentarlo en el próximo volcado
+            log.error("No se pudieron descontar {} unidades vendidas del instrumento {}: {}",
+                    cantidad, estado.instrumentoId, e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    // Si falla, al reiniciar la reserva se restaura con el vencimiento anterior (o sigue apartada hasta vencer)
+    private void guardarVencimiento(Long pedidoId, Instant vence) {
+        try {
+            pedidoRepository.actualizarReservaVence(pedidoId, vence);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo guardar el vencimiento de la reserva del pedido {}: {}", pedidoId, e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private Instant vencimiento() {
+        return Instant.now().plus(Duration.ofMinutes(reservaTtlMinutos));
+    }
+
+    private static class EstadoStock {
+        private final Long instrumentoId;
+        private final ContadorFragmentado disponible;
+        private final LongAdder vendidosSinVolcar = new LongAdder();
+
+        private EstadoStock(Long instrumentoId, ContadorFragmentado disponible) {
+            this.instrumentoId = instrumentoId;
+            this.disponible = disponible;
+        }
+    }
+
+    private static class LineaReserva {
+        private final EstadoStock estado;
+        private final int cantidad;
+
+        private LineaReserva(EstadoStock estado, int cantidad) {
+            this.estado = estado;
+            this.cantidad = cantidad;
+        }
+    }
+
+    public static class Reserva {
+        private final long id;
+        private final List<LineaReserva> lineas;
+        private volatile Instant vence;
+        private volatile Long pedidoId;
+        private volatile boolean terminada;
+
+        private Reserva(long id, List<LineaReserva> lineas, Instant vence) {
+            this.id = id;
+            this.lineas = lineas;
+            this.vence = vence;
+        }
+
+        // Vencimiento a guardar con el pedido; null si no aparta unidades o ya se confirmó o liberó
+        public Instant getVence() {
+            return lineas.isEmpty() || terminada ? null : vence;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.entities.Instrumento;
+import com.utn.frm.instrumentos.repositories.InstrumentoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TablaPreciosService.java
+ * Copia en memoria del precio vigente de cada instrumento, para validar y cotizar pedidos sin ir a la base.
+ * El costo de envío (texto libre: "G" = gratis, o un importe) se interpreta una sola vez, al cargar la tabla.
+ * La tabla es inmutable y se reemplaza entera: se carga la primera vez que se usa y se descarta con
+ * {@link #invalidar()} cada vez que se crea, modifica, borra o importa un instrumento.
+ */
+@Service
+public class TablaPreciosService {
+
+    private static final Logger log = LoggerFactory.getLogger(TablaPreciosService.class);
+
+    @Autowired
+    private InstrumentoRepository instrumentoRepository;
+
+    private volatile Map<Long, PrecioInstrumento> tabla;
+    // Se incrementa en cada invalidación; una carga que empezó antes de invalidar no se publica
+    private final AtomicLong version = new AtomicLong();
+
+    public PrecioInstrumento obtener(Long instrumentoId) {
+        return tabla().get(instrumentoId);
+    }
+
+    public Map<Long, PrecioInstrumento> tabla() {
+        Map<Long, PrecioInstrumento> actual = tabla;
+        if (actual != null) {
+            return actual;
+        }
+        synchronized (this) {
+            if (tabla != null) {
+                return tabla;
+            }
+            long versionCarga = version.get();
+            Map<Long, PrecioInstrumento> cargada = cargar();
+            if (version.get() == versionCarga) {
+                tabla = cargada;
+            }
+            return cargada;
+        }
+    }
+
+    public void invalidar() {
+        version.incrementAndGet();
+        tabla = null;
+    }
+
+    private Map<Long, PrecioInstrumento> cargar() {
+        Map<Long, PrecioInstrumento> nueva = new HashMap<>();
+        for (Instrumento instrumento : instrumentoRepository.findAll()) {
+            nueva.put(instrumento.getId(), new PrecioInstrumento(instrumento.getId(), instrumento.getInstrumento(), instrumento.getPrecio(),
+                    costoEnvio(instrumento)));
+        }
+        log.debug("Tabla de precios cargada: {} instrumentos", nueva.size());
+        return Collections.unmodifiableMap(nueva);
+    }
+
+    private static BigDecimal costoEnvio(Instrumento instrumento) {
+        BigDecimal costo = parsearCostoEnvio(instrumento.getCostoEnvio());
+        if (costo == null) {
+            log.warn("Costo de envío no reconocido para el instrumento {}: '{}', se cotiza como gratis",
+                    instrumento.getId(), instrumento.getCostoEnvio());
+            return BigDecimal.ZERO;
+        }
+        return costo;
+    }
+
+    /**
+     * Interpreta el costo de envío cargado en el instrumento: "G" (o "Gratis") o vacío es envío gratis;
+     * si no, un importe, con o sin "$" y con coma o punto decimal.
+     * @return el importe, o null si el texto no se reconoce.
+     */
+    static BigDecimal parsearCostoEnvio(String costoEnvio) {
+        if (costoEnvio == null || costoEnvio.isBlank()) {
+            return BigDecimal.ZERO;
+        }
+        String texto = costoEnvio.trim();
+        if (texto.equalsIgnoreCase("G") || texto.toLowerCase(Locale.ROOT).startsWith("gratis")) {
+            return BigDecimal.ZERO;
+        }
+        texto = texto.replace("$", "").replace(" ", "").replace(',', '.');
+        try {
+            BigDecimal importe = new BigDecimal(texto);
+            return importe.signum() < 0 ? null : importe;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static class PrecioInstrumento {
+        private final Long id;
+        private final String instrumento;
+        private final BigDecimal precio;
+        private final BigDecimal costoEnvio;
+
+        public PrecioInstrumento(Long id, String instrumento, BigDecimal precio, BigDecimal costoEnvio) {
+            this.id = id;
+            this.instrumento = instrumento;
+            this.precio = precio;
+            this.costoEnvio = costoEnvio;
+        }
+
+        public Long getId() { return id; }
+        public String getInstrumento() { return instrumento; }
+        public BigDecimal getPrecio() { return precio; }
+        public BigDecimal getCostoEnvio() { return costoEnvio; }
+    }
+}
@@ -0,0 +1,138 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.DetallePedidoResponseDTO;
+import com.utn.frm.instrumentos.entities.Instrumento;
+import com.utn.frm.instrumentos.events.PedidoCreadoEvent;
+import com.utn.frm.instrumentos.util.ContadoresPorClave;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * VentasInstrumentoService.java
+ * Mantiene al día Instrumento.cantidadVendida sin bloquear la fila del instrumento en cada pedido.
+ * - Al confirmarse un pedido, las cantidades vendidas se suman a contadores en memoria por instrumento
+ *   (ver ContadoresPorClave). Son los mismos contadores que lee AgregadoVentasService para el gráfico de
+ *   torta: cada línea del pedido se registra una sola vez, en el total y en lo pendiente de volcar.
+ * - Cada cierto intervalo los acumulados se vuelcan con un único UPDATE en lote y se descuentan de memoria.
+ * - Las lecturas del catálogo suman lo pendiente al valor de la base.
+ * - Las correcciones a mano se aplican como diferencia contra el valor leído, sin tocar lo pendiente.
+ * Ante una caída se pierde como máximo lo acumulado desde el último volcado.
+ */
+@Service
+public class VentasInstrumentoService {
+
+    private static final Logger log = LoggerFactory.getLogger(VentasInstrumentoService.class);
+
+    private static final String SQL_SUMAR_VENDIDOS =
+            "UPDATE instrumentos SET cantidad_vendida = cantidad_vendida + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Ventas por id de instrumento: total desde que se cargó el agregado y unidades todavía no volcadas a la base
+    private final ContadoresPorClave ventas = new ContadoresPorClave();
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPedidoCreado(PedidoCreadoEvent evento) {
+        for (DetallePedidoResponseDTO detalle : evento.getPedido().getDetalles()) {
+            long cantidad = detalle.getCantidad();
+            long centavos = AgregadoVentasService.aCentavos(detalle.getPrecioUnitario().multiply(BigDecimal.valueOf(cantidad)));
+            ventas.obtenerOCrear(detalle.getInstrumento().getId(), detalle.getInstrumento().getInstrumento())
+                    .registrar(cantidad, centavos);
+        }
+    }
+
+    // Contadores compartidos con AgregadoVentasService
+    ContadoresPorClave getVentas() {
+        return ventas;
+    }
+
+    public long getPendientes(Long instrumentoId) {
+        ContadoresPorClave.Contadores contadores = ventas.obtener(instrumentoId);
+        return contadores == null ? 0 : contadores.getPendiente();
+    }
+
+    /**
+     * Suma a cada instrumento las ventas todavía no volcadas. Pensado para las respuestas de lectura:
+     * modifica los objetos recibidos, no se debe usar con instrumentos que después se guardan.
+     */
+    public <T extends Iterable<Instrumento>> T conVentasPendientes(T instrumentos) {
+        for (Instrumento instrumento : instrumentos) {
+            conVentasPendientes(instrumento);
+        }
+        return instrumentos;
+    }
+
+    public Instrumento conVentasPendientes(Instrumento instrumento) {
+        long pendiente = getPendientes(instrumento.getId());
+        if (pendiente > 0) {
+            instrumento.setCantidadVendida((int) (instrumento.getCantidadVendida() + pendiente));
+        }
+        return instrumento;
+    }
+
+    /**
+     * Corrige en lote la cantidad vendida guardada sumándole a cada instrumento una diferencia (positiva o
+     * negativa), como hace la importación. Quien la fija a mano pasa lo que cambió respecto del valor que leyó
+     * (base + pendiente): así no se pierden las ventas confirmadas después de esa lectura ni los volcados que
+     * ocurran mientras tanto. Participa de la transacción en curso, si hay una.
+     */
+    public void corregir(Map<Long, Long> diferenciasPorInstrumento) {
+        List<Object[]> diferencias = new ArrayList<>(diferenciasPorInstrumento.size());
+        diferenciasPorInstrumento.forEach((instrumentoId, diferencia) -> {
+            if (diferencia != 0) {
+                diferencias.add(new Object[]{diferencia, instrumentoId});
+            }
+        });
+        if (!diferencias.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_SUMAR_VENDIDOS, diferencias);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.instrumentos.ventas.volcado-ms:5000}")
+    public void volcar() {
+        List<Object[]> incrementos = new ArrayList<>();
+        ventas.forEach(contadores -> {
+            // sumThenReset toma y pone en cero cada celda en forma atómica: no se pierden ventas concurrentes
+            long cantidad = contadores.tomarPendiente();
+            if (cantidad != 0) {
+                incrementos.add(new Object[]{cantidad, contadores.getClave()});
+            }
+        });
+        if (incrementos.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(SQL_SUMAR_VENDIDOS, incrementos));
+            log.debug("Ventas volcadas para {} instrumentos", incrementos.size());
+        } catch (DataAccessException e) {
+            // Se devuelven a memoria para el próximo volcado
+            log.warn("No se pudieron volcar las ventas de {} instrumentos: {}", incrementos.size(), e.getMostSpecificCause().getMessage());
+            for (Object[] incremento : incrementos) {
+                ventas.obtener((Long) incremento[1]).devolverPendiente((Long) incremento[0]);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        volcar();
+    }
+}
@@ -0,0 +1,117 @@
+package com.utn.frm.instrumentos.util;
+
+import java.util.Arrays;
+
+/**
+ * AcumuladorPorClave.java
+ * Suma cantidad e importe (en centavos) agrupados por una clave long, sin boxing:
+ * tabla hash de direccionamiento abierto sobre arreglos primitivos.
+ * Cada clave puede llevar una etiqueta (por ejemplo el nombre del instrumento) que se guarda la primera vez.
+ * No es thread-safe: cada hilo usa su propio acumulador y después se combinan con {@link #combinar}.
+ */
+public class AcumuladorPorClave {
+
+    private static final float FACTOR_CARGA = 0.6f;
+
+    // Tabla hash: posición -> índice + 1 en los arreglos de valores (0 = libre)
+    private int[] tabla;
+    private long[] claves;
+    private long[] cantidades;
+    private long[] centavos;
+    private String[] etiquetas;
+    private int tamanio;
+
+    public AcumuladorPorClave() {
+        this(16);
+    }
+
+    public AcumuladorPorClave(int capacidadInicial) {
+        int capacidad = Integer.highestOneBit(Math.max(4, capacidadInicial) - 1) << 1;
+        tabla = new int[capacidad];
+        claves = new long[capacidad];
+        cantidades = new long[capacidad];
+        centavos = new long[capacidad];
+        etiquetas = new String[capacidad];
+    }
+
+    public void sumar(long clave, String etiqueta, long cantidad, long importeCentavos) {
+        int indice = indiceDe(clave, etiqueta);
+        cantidades[indice] += cantidad;
+        centavos[indice] += importeCentavos;
+    }
+
+    // Suma en este acumulador los totales de otro (por ejemplo, el de otro shard del reporte)
+    public void combinar(AcumuladorPorClave otro) {
+        for (int i = 0; i < otro.tamanio; i++) {
+            sumar(otro.claves[i], otro.etiquetas[i], otro.cantidades[i], otro.centavos[i]);
+        }
+    }
+
+    public int tamanio() { return tamanio; }
+    public long clave(int indice) { return claves[indice]; }
+    public String etiqueta(int indice) { return etiquetas[indice]; }
+    public long cantidad(int indice) { return cantidades[indice]; }
+    public long centavos(int indice) { return centavos[indice]; }
+
+    /**
+     * Índices de las entradas ordenados por clave, para recorrerlas en un orden estable.
+     */
+    public int[] indicesOrdenadosPorClave() {
+        Integer[] indices = new Integer[tamanio];
+        for (int i = 0; i < tamanio; i++) {
+            indices[i] = i;
+        }
+        Arrays.sort(indices, (a, b) -> Long.compare(claves[a], claves[b]));
+        int[] resultado = new int[tamanio];
+        for (int i = 0; i < tamanio; i++) {
+            resultado[i] = indices[i];
+        }
+        return resultado;
+    }
+
+    private int indiceDe(long clave, String etiqueta) {
+        int mascara = tabla.length - 1;
+        int pos = mezclar(clave) & mascara;
+        while (true) {
+            int ocupado = tabla[pos];
+            if (ocupado == 0) {
+                break;
+            }
+            if (claves[ocupado - 1] == clave) {
+                return ocupado - 1;
+            }
+            pos = (pos + 1) & mascara;
+        }
+        int indice = tamanio++;
+        claves[indice] = clave;
+        etiquetas[indice] = etiqueta;
+        tabla[pos] = indice + 1;
+        if (tamanio > tabla.length * FACTOR_CARGA) {
+            crecer();
+        }
+        return indice;
+    }
+
+    private void crecer() {
+        int capacidad = tabla.length * 2;
+        claves = Arrays.copyOf(claves, capacidad);
+        cantidades = Arrays.copyOf(cantidades, capacidad);
+        centavos = Arrays.copyOf(centavos, capacidad);
+        etiquetas = Arrays.copyOf(etiquetas, capacidad);
+        tabla = new int[capacidad];
+        int mascara = capacidad - 1;
+        for (int i = 0; i < tamanio; i++) {
+            int pos = mezclar(claves[i]) & mascara;
+            while (tabla[pos] != 0) {
+                pos = (pos + 1) & mascara;
+            }
+            tabla[pos] = i + 1;
+        }
+    }
+
+    // Dispersa los bits de la clave (ids y días consecutivos caerían en posiciones contiguas)
+    private static int mezclar(long clave) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,75 @@
+package com.utn.frm.instrumentos.util;
+
+import java.util.Arrays;
+
+/**
+ * ColumnasVentas.java
+ * Líneas de pedido guardadas por columnas en arreglos primitivos, para recorrerlas rápido en consultas de análisis.
+ * - Las filas se guardan en bloques de tamaño fijo: crecer no copia los datos ya cargados.
+ * - Solo se agrega (un escritor a la vez). Las filas agregadas se ven recién después de {@link #publicar()},
+ *   así una consulta nunca ve la mitad de un pedido.
+ * - Los lectores toman {@link #getFilas()} y después {@link #getBloques()}, sin locks: todo lo publicado
+ *   hasta ese momento ya está escrito en los bloques.
+ */
+public class ColumnasVentas {
+
+    public static final int BITS_BLOQUE = 16;
+    public static final int TAMANIO_BLOQUE = 1 << BITS_BLOQUE;
+    public static final int MASCARA_BLOQUE = TAMANIO_BLOQUE - 1;
+
+    public static final class Bloque {
+        public final int[] dia = new int[TAMANIO_BLOQUE];              // Día (epoch day) del pedido
+        public final int[] mes = new int[TAMANIO_BLOQUE];              // año * 12 + (mes - 1)
+        public final long[] pedido = new long[TAMANIO_BLOQUE];
+        public final long[] instrumento = new long[TAMANIO_BLOQUE];
+        public final int[] cantidad = new int[TAMANIO_BLOQUE];
+        public final long[] centavos = new long[TAMANIO_BLOQUE];       // Precio unitario en centavos
+        public final int[] marca = new int[TAMANIO_BLOQUE];            // Código en el diccionario de marcas
+        public final int[] categoria = new int[TAMANIO_BLOQUE];        // Código en el diccionario de categorías
+    }
+
+    private volatile Bloque[] bloques = new Bloque[0];
+    private volatile int filas;
+    // Filas escritas, publicadas o no (solo lo usa el escritor)
+    private int escritas;
+
+    public synchronized void agregar(int dia, int mes, long pedido, long instrumento, int cantidad, long centavos,
+                                     int marca, int categoria) {
+        int numeroBloque = escritas >>> BITS_BLOQUE;
+        if (numeroBloque == bloques.length) {
+            Bloque[] nuevos = Arrays.copyOf(bloques, numeroBloque + 1);
+            nuevos[numeroBloque] = new Bloque();
+            bloques = nuevos;
+        }
+        Bloque bloque = bloques[numeroBloque];
+        int i = escritas & MASCARA_BLOQUE;
+        bloque.dia[i] = dia;
+        bloque.mes[i] = mes;
+        bloque.pedido[i] = pedido;
+        bloque.instrumento[i] = instrumento;
+        bloque.cantidad[i] = cantidad;
+        bloque.centavos[i] = centavos;
+        bloque.marca[i] = marca;
+        bloque.categoria[i] = categoria;
+        escritas++;
+    }
+
+    public synchronized void publicar() {
+        filas = escritas;
+    }
+
+    // Descarta todo (por ejemplo, si la carga inicial falló a mitad de camino)
+    public synchronized void vaciar() {
+        filas = 0;
+        escritas = 0;
+        bloques = new Bloque[0];
+    }
+
+    public int getFilas() {
+        return filas;
+    }
+
+    public Bloque[] getBloques() {
+        return bloques;
+    }
+}
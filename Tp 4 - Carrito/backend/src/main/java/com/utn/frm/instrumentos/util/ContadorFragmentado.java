@@ -0,0 +1,98 @@
+package com.utn.frm.instrumentos.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ContadorFragmentado.java
+ * Cantidad disponible repartida en varias celdas que se descuentan con compare-and-set, sin locks.
+ * Cada hilo empieza por una celda al azar, así los descuentos concurrentes casi nunca compiten por
+ * la misma; si la celda no alcanza sigue con las demás.
+ * Ninguna celda baja de cero, por lo que nunca se entrega más de lo disponible. Cerca de agotarse
+ * puede rechazar un pedido que habría entrado (otro hilo tenía unidades tomadas a mitad de camino).
+ */
+public class ContadorFragmentado {
+
+    private final AtomicLongArray celdas;
+    // Unidades quitadas que no estaban disponibles: se cobran de lo que se devuelva después
+    private final AtomicLong deuda = new AtomicLong();
+
+    public ContadorFragmentado(long inicial, int fragmentos) {
+        celdas = new AtomicLongArray(Math.max(1, fragmentos));
+        if (inicial < 0) {
+            deuda.set(-inicial);
+            return;
+        }
+        int n = celdas.length();
+        for (int i = 0; i < n; i++) {
+            celdas.set(i, inicial / n + (i < inicial % n ? 1 : 0));
+        }
+    }
+
+    /**
+     * Toma la cantidad completa o nada.
+     * @return true si había unidades suficientes.
+     */
+    public boolean tomar(long cantidad) {
+        long tomado = tomarHasta(cantidad);
+        if (tomado < cantidad) {
+            devolver(tomado);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Toma todo lo que pueda hasta la cantidad pedida.
+     * @return unidades efectivamente tomadas.
+     */
+    public long tomarHasta(long cantidad) {
+        int n = celdas.length();
+        int inicio = ThreadLocalRandom.current().nextInt(n);
+        long restante = cantidad;
+        for (int i = 0; i < n && restante > 0; i++) {
+            int indice = (inicio + i) % n;
+            long actual;
+            while ((actual = celdas.get(indice)) > 0) {
+                long tomar = Math.min(actual, restante);
+                if (celdas.compareAndSet(indice, actual, actual - tomar)) {
+                    restante -= tomar;
+                    break;
+                }
+            }
+        }
+        return cantidad - restante;
+    }
+
+    public void devolver(long cantidad) {
+        long restante = cantidad;
+        long pendiente;
+        while (restante > 0 && (pendiente = deuda.get()) > 0) {
+            long pago = Math.min(pendiente, restante);
+            if (deuda.compareAndSet(pendiente, pendiente - pago)) {
+                restante -= pago;
+            }
+        }
+        if (restante > 0) {
+            celdas.addAndGet(ThreadLocalRandom.current().nextInt(celdas.length()), restante);
+        }
+    }
+
+    // Descuenta unidades aunque no estén disponibles (por ejemplo, un ajuste de stock hacia abajo)
+    public void quitar(long cantidad) {
+        long faltante = cantidad - tomarHasta(cantidad);
+        if (faltante > 0) {
+            deuda.addAndGet(faltante);
+        }
+    }
+
+    // Valor aproximado si hay operaciones en curso
+    public long disponible() {
+        long total = -deuda.get();
+        for (int i = 0; i < celdas.length(); i++) {
+            total += celdas.get(i);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,141 @@
+package com.utn.frm.instrumentos.util;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * ContadoresPorClave.java
+ * Cantidad e importe (en centavos) acumulados por una clave long, para muchos hilos a la vez.
+ * - Las claves se guardan en un long[] con direccionamiento abierto: la búsqueda no crea objetos ni toma locks.
+ * - Cada clave tiene sus LongAdder (repartidos en celdas), así los hilos que suman a la misma clave no compiten.
+ * - Además del total, cada clave lleva la cantidad pendiente de volcar a otro lado (por ejemplo a la base),
+ *   que se toma y se pone en cero sin perder lo que se suma al mismo tiempo.
+ * - Agregar una clave nueva copia la tabla bajo lock y la publica entera: pensado para pocas claves
+ *   (el catálogo de instrumentos) que se crean rara vez y se suman muy seguido.
+ */
+public class ContadoresPorClave {
+
+    private static final float FACTOR_CARGA = 0.5f;
+
+    public static final class Contadores {
+        private final long clave;
+        private volatile String etiqueta;
+        private final LongAdder cantidad = new LongAdder();
+        private final LongAdder centavos = new LongAdder();
+        private final LongAdder pendiente = new LongAdder();
+
+        private Contadores(long clave, String etiqueta) {
+            this.clave = clave;
+            this.etiqueta = etiqueta;
+        }
+
+        public void sumar(long cantidad, long centavos) {
+            this.cantidad.add(cantidad);
+            this.centavos.add(centavos);
+        }
+
+        // Suma al total y a lo pendiente de volcar
+        public void registrar(long cantidad, long centavos) {
+            sumar(cantidad, centavos);
+            pendiente.add(cantidad);
+        }
+
+        // Reemplaza el total; lo pendiente no cambia
+        public void reiniciar(long cantidad, long centavos) {
+            this.cantidad.reset();
+            this.centavos.reset();
+            sumar(cantidad, centavos);
+        }
+
+        // Devuelve lo pendiente y lo pone en cero
+        public long tomarPendiente() {
+            return pendiente.sumThenReset();
+        }
+
+        public void devolverPendiente(long cantidad) {
+            pendiente.add(cantidad);
+        }
+
+        public long getClave() { return clave; }
+        public String getEtiqueta() { return etiqueta; }
+        public void setEtiqueta(String etiqueta) { this.etiqueta = etiqueta; }
+        public long getCantidad() { return cantidad.sum(); }
+        public long getCentavos() { return centavos.sum(); }
+        public long getPendiente() { return pendiente.sum(); }
+    }
+
+    // Tabla inmutable una vez publicada: claves[i] corresponde a valores[i] (null = posición libre)
+    private static final class Tabla {
+        private final long[] claves;
+        private final Contadores[] valores;
+        private final int tamanio;
+
+        private Tabla(int capacidad, int tamanio) {
+            claves = new long[capacidad];
+            valores = new Contadores[capacidad];
+            this.tamanio = tamanio;
+        }
+
+        private int posicion(long clave) {
+            int mascara = claves.length - 1;
+            int i = Long.hashCode(clave * 0x9E3779B97F4A7C15L) & mascara;
+            while (valores[i] != null && claves[i] != clave) {
+                i = (i + 1) & mascara;
+            }
+            return i;
+        }
+    }
+
+    private volatile Tabla tabla = new Tabla(16, 0);
+
+    // Contadores de la clave, o null si nunca se sumó nada a ella
+    public Contadores obtener(long clave) {
+        Tabla actual = tabla;
+        return actual.valores[actual.posicion(clave)];
+    }
+
+    public Contadores obtenerOCrear(long clave, String etiqueta) {
+        Contadores contadores = obtener(clave);
+        return contadores != null ? contadores : crear(clave, etiqueta);
+    }
+
+    private synchronized Contadores crear(long clave, String etiqueta) {
+        Tabla actual = tabla;
+        Contadores existente = actual.valores[actual.posicion(clave)];
+        if (existente != null) {
+            return existente;
+        }
+        int capacidad = actual.claves.length;
+        if (actual.tamanio + 1 > capacidad * FACTOR_CARGA) {
+            capacidad <<= 1;
+        }
+        Tabla nueva = new Tabla(capacidad, actual.tamanio + 1);
+        for (Contadores contadores : actual.valores) {
+            if (contadores != null) {
+                colocar(nueva, contadores);
+            }
+        }
+        Contadores creado = new Contadores(clave, etiqueta);
+        colocar(nueva, creado);
+        tabla = nueva;
+        return creado;
+    }
+
+    private static void colocar(Tabla destino, Contadores contadores) {
+        int i = destino.posicion(contadores.clave);
+        destino.claves[i] = contadores.clave;
+        destino.valores[i] = contadores;
+    }
+
+    public void forEach(Consumer<Contadores> consumidor) {
+        for (Contadores contadores : tabla.valores) {
+            if (contadores != null) {
+                consumidor.accept(contadores);
+            }
+        }
+    }
+
+    public int tamanio() {
+        return tabla.tamanio;
+    }
+}
@@ -0,0 +1,41 @@
+package com.utn.frm.instrumentos.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diccionario.java
+ * Codifica textos repetidos (marcas, categorías) como enteros consecutivos, para guardarlos en columnas int[].
+ * Los códigos no cambian ni se reutilizan. null se guarda como texto vacío.
+ */
+public class Diccionario {
+
+    private final Map<String, Integer> codigos = new HashMap<>();
+    private final List<String> valores = new ArrayList<>();
+
+    public synchronized int codificar(String valor) {
+        String clave = valor == null ? "" : valor;
+        Integer codigo = codigos.get(clave);
+        if (codigo == null) {
+            codigo = valores.size();
+            codigos.put(clave, codigo);
+            valores.add(clave);
+        }
+        return codigo;
+    }
+
+    // Código del valor, o -1 si nunca se codificó
+    public synchronized int codigo(String valor) {
+        return codigos.getOrDefault(valor == null ? "" : valor, -1);
+    }
+
+    public synchronized String valor(int codigo) {
+        return valores.get(codigo);
+    }
+
+    public synchronized int tamanio() {
+        return valores.size();
+    }
+}
@@ -0,0 +1,96 @@
+package com.utn.frm.instrumentos.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LectorCsv.java
+ * Lector CSV (RFC 4180) que devuelve un registro por vez, sin cargar el archivo en memoria.
+ * Soporta campos entre comillas con separadores, comillas dobles ("") y saltos de línea dentro.
+ * El separador se indica al construirlo (',' o ';' en los CSV que exporta Excel en español).
+ */
+public class LectorCsv implements Closeable {
+
+    private final Reader reader;
+    private final char separador;
+    private long numeroRegistro;
+    private boolean fin;
+
+    public LectorCsv(Reader reader, char separador) {
+        this.reader = reader.markSupported() ? reader : new BufferedReader(reader);
+        this.separador = separador;
+    }
+
+    /**
+     * Lee el siguiente registro.
+     * @return los campos del registro, o null al llegar al final del archivo.
+     */
+    public String[] leer() throws IOException {
+        if (fin) {
+            return null;
+        }
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        boolean leyoAlgo = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            leyoAlgo = true;
+            char ch = (char) c;
+            if (entreComillas) {
+                if (ch == '"') {
+                    reader.mark(1);
+                    int siguiente = reader.read();
+                    if (siguiente == '"') {
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        if (siguiente != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    campo.append(ch);
+                }
+            } else if (ch == '"' && campo.length() == 0) {
+                entreComillas = true;
+            } else if (ch == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (ch == '\n' || ch == '\r') {
+                if (ch == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                campos.add(campo.toString());
+                numeroRegistro++;
+                return campos.toArray(new String[0]);
+            } else {
+                campo.append(ch);
+            }
+        }
+        fin = true;
+        if (!leyoAlgo) {
+            return null;
+        }
+        campos.add(campo.toString());
+        numeroRegistro++;
+        return campos.toArray(new String[0]);
+    }
+
+    // Número (base 1) del último registro leído; con campos multilínea no coincide con la línea del archivo
+    public long getNumeroRegistro() {
+        return numeroRegistro;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,11 @@
+-- Inicializa los generadores de ids de pedido y pedido_detalle (tabla secuencias_id, pooled-lo).
+-- proximo_valor queda en el mayor id existente + 1, para que los ids nuevos no choquen con los que
+-- se generaron con AUTO_INCREMENT. Es idempotente: se ejecuta en cada arranque y nunca retrocede el valor.
+
+INSERT INTO secuencias_id (nombre_secuencia, proximo_valor)
+SELECT 'pedido', m.siguiente FROM (SELECT COALESCE(MAX(id), 0) + 1 AS siguiente FROM pedido) m
+ON DUPLICATE KEY UPDATE proximo_valor = GREATEST(proximo_valor, m.siguiente);
+
+INSERT INTO secuencias_id (nombre_secuencia, proximo_valor)
+SELECT 'pedido_detalle', m.siguiente FROM (SELECT COALESCE(MAX(id), 0) + 1 AS siguiente FROM pedido_detalle) m
+ON DUPLICATE KEY UPDATE proximo_valor = GREATEST(proximo_valor, m.siguiente);
@@ -0,0 +1,148 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.DetallePedidoRequestDTO;
+import com.utn.frm.instrumentos.dto.PedidoRequestDTO;
+import com.utn.frm.instrumentos.dto.PedidoResponseDTO;
+import com.utn.frm.instrumentos.entities.Categoria;
+import com.utn.frm.instrumentos.entities.Instrumento;
+import com.utn.frm.instrumentos.repositories.CategoriaRepository;
+import com.utn.frm.instrumentos.repositories.InstrumentoRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.utn.frm.instrumentos.services.PedidoServiceTest$ContadorSentencias",
+		"spring.sql.init.mode=never"
+})
+@Import({PedidoService.class, StockService.class, PedidoCacheService.class, RollupPedidosService.class, AgregadoVentasService.class, VentasInstrumentoService.class})
+class PedidoServiceTest {
+
+	@Autowired
+	private PedidoService pedidoService;
+
+	@Autowired
+	private InstrumentoRepository instrumentoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private final List<Instrumento> instrumentos = new ArrayList<>();
+
+	@BeforeEach
+	void cargarInstrumentos() {
+		Categoria categoria = categoriaRepository.save(new Categoria("Cuerda"));
+		for (int i = 0; i < 40; i++) {
+			instrumentos.add(instrumentoRepository.save(new Instrumento("Instrumento " + i, "Marca", "Modelo", "img.jpg",
+					new BigDecimal("100.50"), "G", 0, "Descripción", categoria)));
+		}
+		// Pedido en un contexto de persistencia vacío, como en una request real
+		entityManager.flush();
+		entityManager.clear();
+		ContadorSentencias.reiniciar();
+	}
+
+	@Test
+	void crearPedidoHaceUnaSolaConsultaSinImportarElTamanioDelCarrito() {
+		pedidoService.crearPedido(pedido(instrumentos.subList(0, 3)));
+		int selectsCarritoChico = ContadorSentencias.SELECTS.get();
+		ContadorSentencias.reiniciar();
+		entityManager.clear();
+
+		pedidoService.crearPedido(pedido(instrumentos));
+		int selectsCarritoGrande = ContadorSentencias.SELECTS.get();
+
+		assertEquals(1, selectsCarritoChico);
+		assertEquals(1, selectsCarritoGrande);
+	}
+
+	@Test
+	void crearPedidoInsertaLosDetallesEnUnLote() {
+		pedidoService.crearPedido(pedido(instrumentos));
+		entityManager.flush();
+
+		// Un INSERT preparado para el pedido y uno para los 40 detalles (batch JDBC)
+		assertEquals(2, ContadorSentencias.INSERTS.get());
+	}
+
+	@Test
+	void crearPedidoUneLineasRepetidas() {
+		Instrumento instrumento = instrumentos.get(0);
+		PedidoResponseDTO respuesta = pedidoService.crearPedido(pedido(List.of(instrumento, instrumento, instrumentos.get(1))));
+
+		assertEquals(2, respuesta.getDetalles().size());
+		assertEquals(instrumento.getId(), respuesta.getDetalles().get(0).getInstrumento().getId());
+		assertEquals(4, respuesta.getDetalles().get(0).getCantidad());
+		assertEquals(new BigDecimal("603.00"), respuesta.getTotal());
+	}
+
+	@Test
+	void crearPedidoInformaTodosLosInstrumentosInexistentes() {
+		PedidoRequestDTO request = pedido(instrumentos.subList(0, 2));
+		request.getDetalles().add(detalle(9998L, 1));
+		request.getDetalles().add(detalle(9999L, 1));
+
+		RuntimeException error = assertThrows(RuntimeException.class, () -> pedidoService.crearPedido(request));
+		assertTrue(error.getMessage().contains("9998"));
+		assertTrue(error.getMessage().contains("9999"));
+	}
+
+	// Cada instrumento se pide con cantidad 2
+	private static PedidoRequestDTO pedido(List<Instrumento> instrumentos) {
+		PedidoRequestDTO request = new PedidoRequestDTO();
+		List<DetallePedidoRequestDTO> detalles = new ArrayList<>();
+		for (Instrumento instrumento : instrumentos) {
+			detalles.add(detalle(instrumento.getId(), 2));
+		}
+		request.setDetalles(detalles);
+		return request;
+	}
+
+	private static DetallePedidoRequestDTO detalle(Long instrumentoId, int cantidad) {
+		DetallePedidoRequestDTO detalle = new DetallePedidoRequestDTO();
+		detalle.setInstrumentoId(instrumentoId);
+		detalle.setCantidad(cantidad);
+		return detalle;
+	}
+
+	// Cuenta las sentencias que Hibernate prepara. Las de la tabla de ids (secuencias_id) se ignoran:
+	// se ejecutan una vez cada 50 ids y no dependen del pedido.
+	public static class ContadorSentencias implements StatementInspector {
+		static final AtomicInteger SELECTS = new AtomicInteger();
+		static final AtomicInteger INSERTS = new AtomicInteger();
+
+		static void reiniciar() {
+			SELECTS.set(0);
+			INSERTS.set(0);
+		}
+
+		@Override
+		public String inspect(String sql) {
+			String sentencia = sql.trim().toLowerCase(Locale.ROOT);
+			if (!sentencia.contains("secuencias_id")) {
+				if (sentencia.startsWith("select")) {
+					SELECTS.incrementAndGet();
+				} else if (sentencia.startsWith("insert")) {
+					INSERTS.incrementAndGet();
+				}
+			}
+			return sql;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package com.utn.frm.instrumentos.services;
+
+import com.utn.frm.instrumentos.dto.DetallePedidoRequestDTO;
+import com.utn.frm.instrumentos.dto.PedidoRequestDTO;
+import com.utn.frm.instrumentos.dto.PedidoResponseDTO;
+import com.utn.frm.instrumentos.entities.Categoria;
+import com.utn.frm.instrumentos.entities.Instrumento;
+import com.utn.frm.instrumentos.repositories.CategoriaRepository;
+import com.utn.frm.instrumentos.repositories.InstrumentoRepository;
+import com.utn.frm.instrumentos.util.ContadorFragmentado;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.sql.init.mode=never",
+		"app.stock.volcado-ms=3600000"
+})
+@Import({PedidoService.class, StockService.class, PedidoCacheService.class, RollupPedidosService.class, AgregadoVentasService.class, VentasInstrumentoService.class})
+// Los pedidos se crean desde varios hilos: cada uno necesita ver los instrumentos ya confirmados
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockServiceTest {
+
+	private static final int CHECKOUTS = 400;
+
+	@Autowired
+	private PedidoService pedidoService;
+
+	@Autowired
+	private StockService stockService;
+
+	@Autowired
+	private InstrumentoRepository instrumentoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Test
+	void checkoutsParalelosNoVendenMasQueElStock() throws Exception {
+		Instrumento guitarra = instrumento("Guitarra", 150);
+		Instrumento bateria = instrumento("Batería", 60);
+
+		Map<Long, AtomicInteger> vendidos = new ConcurrentHashMap<>();
+		vendidos.put(guitarra.getId(), new AtomicInteger());
+		vendidos.put(bateria.getId(), new AtomicInteger());
+		List<Long> pedidosCreados = new ArrayList<>();
+		AtomicInteger rechazados = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(64);
+		CountDownLatch largada = new CountDownLatch(1);
+		List<Future<PedidoResponseDTO>> checkouts = new ArrayList<>();
+		for (int i = 0; i < CHECKOUTS; i++) {
+			checkouts.add(executor.submit(() -> {
+				largada.await();
+				PedidoRequestDTO request = new PedidoRequestDTO();
+				List<DetallePedidoRequestDTO> detalles = new ArrayList<>();
+				detalles.add(detalle(guitarra.getId(), ThreadLocalRandom.current().nextInt(1, 4)));
+				if (ThreadLocalRandom.current().nextBoolean()) {
+					detalles.add(detalle(bateria.getId(), 1));
+				}
+				request.setDetalles(detalles);
+				try {
+					return pedidoService.crearPedido(request);
+				} catch (RuntimeException e) {
+					assertTrue(e.getMessage().startsWith("Stock insuficiente"), e.getMessage());
+					rechazados.incrementAndGet();
+					return null;
+				}
+			}));
+		}
+		largada.countDown();
+		for (Future<PedidoResponseDTO> checkout : checkouts) {
+			PedidoResponseDTO pedido = checkout.get(60, TimeUnit.SECONDS);
+			if (pedido != null) {
+				pedidosCreados.add(pedido.getId());
+				pedido.getDetalles().forEach(detalle ->
+						vendidos.get(detalle.getInstrumento().getId()).addAndGet(detalle.getCantidad()));
+			}
+		}
+		executor.shutdown();
+
+		assertTrue(rechazados.get() > 0, "La demanda supera el stock: algunos checkouts deben rechazarse");
+		assertEquals(CHECKOUTS, pedidosCreados.size() + rechazados.get());
+		assertTrue(vendidos.get(guitarra.getId()).get() <= 150);
+		assertTrue(vendidos.get(bateria.getId()).get() <= 60);
+		assertEquals(150 - vendidos.get(guitarra.getId()).get(), stockService.getDisponible(guitarra.getId()));
+		assertEquals(60 - vendidos.get(bateria.getId()).get(), stockService.getDisponible(bateria.getId()));
+
+		// Confirmados todos los pagos, un único volcado deja el stock de la base al día
+		pedidosCreados.forEach(id -> assertTrue(stockService.confirmar(id)));
+		stockService.volcar();
+		assertEquals(150 - vendidos.get(guitarra.getId()).get(), instrumentoRepository.findById(guitarra.getId()).get().getStock());
+		assertEquals(60 - vendidos.get(bateria.getId()).get(), instrumentoRepository.findById(bateria.getId()).get().getStock());
+	}
+
+	@Test
+	void laReservaVencidaDevuelveElStock() {
+		Instrumento piano = instrumento("Piano", 3);
+		PedidoRequestDTO request = new PedidoRequestDTO();
+		request.setDetalles(new ArrayList<>(List.of(detalle(piano.getId(), 3))));
+
+		ReflectionTestUtils.setField(stockService, "reservaTtlMinutos", -1L);
+		try {
+			PedidoResponseDTO pedido = pedidoService.crearPedido(request);
+			assertEquals(0L, stockService.getDisponible(piano.getId()));
+			assertThrows(RuntimeException.class, () -> pedidoService.crearPedido(request));
+
+			stockService.liberarVencidas();
+
+			assertEquals(3L, stockService.getDisponible(piano.getId()));
+			assertFalse(stockService.confirmar(pedido.getId()));
+		} finally {
+			ReflectionTestUtils.setField(stockService, "reservaTtlMinutos", 30L);
+		}
+	}
+
+	@Test
+	void sinStockCargadoNoHayControl() {
+		Instrumento ukelele = instrumento("Ukelele", null);
+		PedidoRequestDTO request = new PedidoRequestDTO();
+		request.setDetalles(new ArrayList<>(List.of(detalle(ukelele.getId(), 1000))));
+
+		assertNotNull(pedidoService.crearPedido(request).getId());
+		assertNull(stockService.getDisponible(ukelele.getId()));
+	}
+
+	@Test
+	void contadorFragmentadoNoBajaDeCeroConTomasYDevolucionesConcurrentes() throws Exception {
+		ContadorFragmentado contador = new ContadorFragmentado(1000, 8);
+		AtomicInteger tomadas = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(32);
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < 32; i++) {
+			tareas.add(executor.submit(() -> {
+				for (int j = 0; j < 5000; j++) {
+					int cantidad = ThreadLocalRandom.current().nextInt(1, 5);
+					if (contador.tomar(cantidad)) {
+						tomadas.addAndGet(cantidad);
+						if (ThreadLocalRandom.current().nextInt(4) == 0) {
+							contador.devolver(cantidad);
+							tomadas.addAndGet(-cantidad);
+						}
+					}
+				}
+			}));
+		}
+		for (Future<?> tarea : tareas) {
+			tarea.get(60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		assertTrue(tomadas.get() <= 1000);
+		assertEquals(1000 - tomadas.get(), contador.disponible());
+	}
+
+	private Instrumento instrumento(String nombre, Integer stock) {
+		Categoria categoria = categoriaRepository.save(new Categoria("Categoría " + nombre));
+		Instrumento instrumento = new Instrumento(nombre, "Marca", "Modelo", "img.jpg",
+				new BigDecimal("100.00"), "G", 0, "Descripción", categoria);
+		instrumento.setStock(stock);
+		return instrumentoRepository.save(instrumento);
+	}
+
+	private static DetallePedidoRequestDTO detalle(Long instrumentoId, int cantidad) {
+		DetallePedidoRequestDTO detalle = new DetallePedidoRequestDTO();
+		detalle.setInstrumentoId(instrumentoId);
+		detalle.setCantidad(cantidad);
+		return detalle;
+	}
+}